@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.ipmdecisions.dssservice.entity.DSS;
+import net.ipmdecisions.dssservice.entity.RiskMaps;
+import net.ipmdecisions.dssservice.util.CountryBoundaryStore;
+
+/**
+ * An immutable, in-memory snapshot of all the DSSs (and the risk maps) in the DSS_LIST_FILES_PATH folder.
+ * The YAML files are parsed once, and the result is shared between all requests.
+ * Readers get the current snapshot from {@link #getCurrent()} without any locking.
+ * Writers build a complete new snapshot and replace the old one in one atomic operation,
+ * so a reader always sees either the old or the new catalog, never a mix.
+ *
+ * The DSS objects in the snapshot must NOT be changed. Use {@link DSS#withModels(List)} for
+ * a filtered view, or {@link #copyOf(DSS)} if you need a version that you can modify.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class DSSCatalog {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DSSCatalog.class);
+	private static final int DEFAULT_TRANSLATION_CACHE_LANGUAGES = 10;
+
+	private static final AtomicReference<DSSCatalog> current = new AtomicReference<>();
+	private static final AtomicLong generationCounter = new AtomicLong();
+
+	// Used for deep copies of the DSS objects
+	private static final ObjectMapper copyMapper = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	private final long generation;
+	private final Map<String, DSS> DSSByFileName;
+	private final List<DSS> DSSList;
+	private final RiskMaps riskMaps;
+	private final Map<String, String> loadErrors;
+	private final DSSModelIndex modelIndex;
+	// Built on first use, since it needs the country boundaries
+	private volatile DSSModelSpatialIndex spatialIndex;
+	// Translated versions of DSSList, by language. Least recently used languages are evicted
+	private final Map<String, List<DSS>> translatedDSSLists;
+	// The languages that the i18n folder has translations for. Found on first use. A change in
+	// the i18n folder gives a new catalog generation, so this can't be outdated
+	private volatile Set<String> availableLanguages;
+
+	/**
+	 * @param DSSByFileName The DSSs, mapped by the name of the file they were read from
+	 * @param riskMaps The risk maps. May be null
+	 */
+	DSSCatalog(Map<String, DSS> DSSByFileName, RiskMaps riskMaps)
+	{
+		this(DSSByFileName, riskMaps, Map.of());
+	}
+
+	/**
+	 * @param DSSByFileName The DSSs, mapped by the name of the file they were read from
+	 * @param riskMaps The risk maps. May be null
+	 * @param loadErrors Error messages for the DSS files that could not be read, mapped by file name
+	 */
+	DSSCatalog(Map<String, DSS> DSSByFileName, RiskMaps riskMaps, Map<String, String> loadErrors)
+	{
+		this.loadErrors = Collections.unmodifiableMap(new TreeMap<>(loadErrors));
+		this.generation = generationCounter.incrementAndGet();
+		this.DSSByFileName = Collections.unmodifiableMap(new TreeMap<>(DSSByFileName));
+		this.DSSList = Collections.unmodifiableList(new ArrayList<>(this.DSSByFileName.values()));
+		this.riskMaps = riskMaps;
+		this.modelIndex = new DSSModelIndex(this.DSSList);
+		int maxLanguages = getConfiguredTranslationCacheLanguages();
+		this.translatedDSSLists = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, List<DSS>> eldest) {
+				return size() > maxLanguages;
+			}
+		};
+	}
+
+	/**
+	 * @return the configured TRANSLATION_CACHE_LANGUAGES, or the default if it's not a number of zero or more
+	 */
+	static int getConfiguredTranslationCacheLanguages()
+	{
+		String languages = System.getProperty("net.ipmdecisions.dssservice.TRANSLATION_CACHE_LANGUAGES", String.valueOf(DEFAULT_TRANSLATION_CACHE_LANGUAGES));
+		try
+		{
+			int retVal = Integer.parseInt(languages);
+			if(retVal < 0)
+			{
+				LOGGER.error("TRANSLATION_CACHE_LANGUAGES must be zero or more, but is " + languages
+						+ ". Using " + DEFAULT_TRANSLATION_CACHE_LANGUAGES + " instead");
+				return DEFAULT_TRANSLATION_CACHE_LANGUAGES;
+			}
+			return retVal;
+		}
+		catch(NumberFormatException ex)
+		{
+			LOGGER.error("Could not read TRANSLATION_CACHE_LANGUAGES (" + languages + "). Using " + DEFAULT_TRANSLATION_CACHE_LANGUAGES + " instead");
+			return DEFAULT_TRANSLATION_CACHE_LANGUAGES;
+		}
+	}
+
+	/**
+	 * Get the current catalog. It's loaded from disk on first use.
+	 * @return the current catalog
+	 * @throws IOException if the catalog could not be loaded
+	 */
+	public static DSSCatalog getCurrent() throws IOException
+	{
+		DSSCatalog catalog = current.get();
+		if(catalog == null)
+		{
+			synchronized(DSSCatalog.class)
+			{
+				catalog = current.get();
+				if(catalog == null)
+				{
+					catalog = new DSSCatalogLoader().load();
+					current.set(catalog);
+				}
+			}
+		}
+		return catalog;
+	}
+
+	/**
+	 * Reads all DSS files from disk and replaces the current catalog with the result.
+	 * Readers keep using the old catalog until the new one is complete.
+	 * @return the new catalog
+	 * @throws IOException if the catalog could not be loaded. The current catalog is then kept
+	 */
+	public static synchronized DSSCatalog reload() throws IOException
+	{
+		DSSCatalog catalog = new DSSCatalogLoader().load();
+		current.set(catalog);
+		return catalog;
+	}
+
+	/**
+	 * Creates a new catalog generation from the current one, re-reading only the files that have changed.
+	 * Used by the {@link DSSCatalogWatcher}
+	 * @param changedDSSFileNames names of DSS files in DSS_LIST_FILES_PATH that have been created, changed or deleted
+	 * @param riskMapsChanged true if the risk maps file has been changed
+	 * @return the new catalog
+	 * @throws IOException if there is no current catalog, and it could not be loaded
+	 */
+	public static synchronized DSSCatalog refresh(Set<String> changedDSSFileNames, boolean riskMapsChanged) throws IOException
+	{
+		DSSCatalog catalog = new DSSCatalogLoader().update(getCurrent(), changedDSSFileNames, riskMapsChanged);
+		current.set(catalog);
+		return catalog;
+	}
+
+	/**
+	 * Creates a deep copy of a DSS, so that it can be changed (e.g. translated or filtered)
+	 * without affecting the shared catalog
+	 * @param dss the DSS to copy
+	 * @return a deep copy of the DSS
+	 * @throws IOException
+	 */
+	public static DSS copyOf(DSS dss) throws IOException
+	{
+		return copyMapper.readValue(copyMapper.writeValueAsBytes(dss), DSS.class);
+	}
+
+	/**
+	 * @return A number that increases each time a new catalog is created. Can be used as cache key
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * @return All DSSs in the catalog, ordered by the name of the file they were read from. Read only!
+	 */
+	public List<DSS> getDSSList() {
+		return DSSList;
+	}
+
+	/**
+	 * Get all DSSs in the catalog, translated into the given language. Each language is
+	 * translated once per catalog generation, on first use, and the result is shared between
+	 * all requests. The DSSs and their models are in the same order as in {@link #getDSSList()},
+	 * so the model ordinals from {@link #getModelIndex()} are valid for this list as well.
+	 * @param language two-letter code for language. If null, or if there are no translations for it, "default" is used
+	 * @return the translated DSSs. Read only!
+	 * @throws IOException
+	 */
+	public List<DSS> getDSSList(String language) throws IOException
+	{
+		// Languages without translations all give the same result, so they must not get their own
+		// cache entries. Otherwise any number of made up languages could evict the real ones
+		String key = this.getAvailableLanguage(language);
+		synchronized(this.translatedDSSLists)
+		{
+			List<DSS> translated = this.translatedDSSLists.get(key);
+			if(translated != null)
+			{
+				return translated;
+			}
+		}
+		// Translate outside the lock, so that other languages are not blocked meanwhile
+		List<DSS> translated;
+		try(DSSTranslator translator = new DSSTranslator(key))
+		{
+			translated = Collections.unmodifiableList(translator.getTranslatedCopies(this.DSSList));
+		}
+		synchronized(this.translatedDSSLists)
+		{
+			// Another thread may have translated the same language in the meantime. Use the first result
+			List<DSS> existing = this.translatedDSSLists.putIfAbsent(key, translated);
+			return existing != null ? existing : translated;
+		}
+	}
+
+	/**
+	 * @param language two-letter code for language. May be null
+	 * @return the language in lower case if there are translations for it, otherwise "default"
+	 */
+	public String getAvailableLanguage(String language)
+	{
+		if(language == null)
+		{
+			return "default";
+		}
+		Set<String> languages = this.availableLanguages;
+		if(languages == null)
+		{
+			languages = DSSTranslator.getAvailableLanguages(this.DSSList.stream().map(DSS::getId).collect(Collectors.toSet()));
+			this.availableLanguages = languages;
+		}
+		String normalizedLanguage = language.toLowerCase(Locale.ROOT);
+		return languages.contains(normalizedLanguage) ? normalizedLanguage : "default";
+	}
+
+	/**
+	 * @return The DSSs, mapped by the name of the file they were read from. Read only!
+	 */
+	public Map<String, DSS> getDSSByFileName() {
+		return DSSByFileName;
+	}
+
+	/**
+	 * @return Indexes for fast filtering of the models in this catalog
+	 */
+	public DSSModelIndex getModelIndex() {
+		return modelIndex;
+	}
+
+	/**
+	 * @return Spatial index for location queries on the models in this catalog. It's built on first use
+	 * @throws IOException if the country boundaries could not be read
+	 */
+	public DSSModelSpatialIndex getSpatialIndex() throws IOException {
+		DSSModelSpatialIndex index = this.spatialIndex;
+		if(index == null)
+		{
+			synchronized(this)
+			{
+				index = this.spatialIndex;
+				if(index == null)
+				{
+					index = new DSSModelSpatialIndex(this.modelIndex, CountryBoundaryStore.getInstance());
+					this.spatialIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @return the spatial index if it has been built, otherwise null. Unlike {@link #getSpatialIndex()},
+	 * this never builds it
+	 */
+	public DSSModelSpatialIndex getSpatialIndexIfBuilt() {
+		return this.spatialIndex;
+	}
+
+	/**
+	 * @return Error messages for the DSS files that could not be read, mapped by file name. Empty if all went well
+	 */
+	public Map<String, String> getLoadErrors() {
+		return loadErrors;
+	}
+
+	/**
+	 * @return The risk maps, or null if the risk maps file was not found or could not be read
+	 */
+	public RiskMaps getRiskMaps() {
+		return riskMaps;
+	}
+
+	/**
+	 * @param dss the DSS to look for
+	 * @return The name of the file that the DSS with the same id and version was read from, or null if not found
+	 */
+	public String getFileName(DSS dss)
+	{
+		for(Map.Entry<String, DSS> entry:DSSByFileName.entrySet())
+		{
+			if(entry.getValue().getId().equals(dss.getId()) && entry.getValue().getVersion().equals(dss.getVersion()))
+			{
+				return entry.getKey();
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import net.ipmdecisions.dssservice.entity.DSS;
+import net.ipmdecisions.dssservice.entity.RiskMaps;
+
+/**
+ * Reads the DSS YAML files (and the risk maps file) in DSS_LIST_FILES_PATH and builds a {@link DSSCatalog}
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class DSSCatalogLoader {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DSSCatalogLoader.class);
+
+	public static final String DSS_FILE_EXTENSION = ".yaml";
+	public static final String I18N_FOLDER = "i18n";
+	public static final String RISK_MAPS_FOLDER = "risk_maps";
+	public static final String RISK_MAPS_FILE = "risk_maps.yaml";
+
+	private final ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+
+	/**
+	 * @return a new catalog with all the DSSs found in DSS_LIST_FILES_PATH. If the files have not changed
+	 * since the last time, the catalog is read from the binary snapshot (see {@link DSSCatalogSnapshot})
+	 * @throws IOException
+	 */
+	public DSSCatalog load() throws IOException
+	{
+		File[] DSSFiles = this.getFilesWithExtension(getDSSListFilesPath(), DSS_FILE_EXTENSION);
+		DSSCatalogSnapshot snapshot = DSSCatalogSnapshot.getConfigured();
+		// The fingerprint must be taken before the files are read. If a file changes while we're
+		// reading, the snapshot will then be outdated next time, instead of wrongly up to date
+		String fingerprint = DSSCatalogSnapshot.getFingerprint(DSSFiles, this.getRiskMapsFile());
+		DSSCatalogSnapshot.Content content = snapshot != null ? snapshot.read(fingerprint) : null;
+		if(content != null)
+		{
+			DSSCatalog catalog = new DSSCatalog(content.getDSSByFileName(), content.getRiskMaps());
+			LOGGER.info("Loaded DSS catalog generation " + catalog.getGeneration() + " with " + catalog.getDSSList().size() + " DSSs from snapshot");
+			return catalog;
+		}
+
+		Map<String, String> loadErrors = new ConcurrentHashMap<>();
+		Map<String, DSS> DSSByFileName = this.readDSSFiles(DSSFiles, loadErrors);
+		RiskMaps riskMaps = this.readRiskMapsFile();
+		// Don't store a snapshot with missing DSSs, or the errors would not be reported next time
+		if(snapshot != null && loadErrors.isEmpty())
+		{
+			snapshot.write(fingerprint, DSSByFileName, riskMaps);
+		}
+		DSSCatalog catalog = new DSSCatalog(DSSByFileName, riskMaps, loadErrors);
+		LOGGER.info("Loaded DSS catalog generation " + catalog.getGeneration() + " with " + catalog.getDSSList().size() + " DSSs"
+				+ (loadErrors.isEmpty() ? "" : ". Could not read " + new TreeSet<>(loadErrors.keySet())));
+		return catalog;
+	}
+
+	/**
+	 * Parses the DSS files in parallel. The number of threads is limited by
+	 * net.ipmdecisions.dssservice.CATALOG_LOAD_PARALLELISM (default: the number of processors)
+	 * @param DSSFiles the files to read
+	 * @param loadErrors files that could not be read are added here, with the error message
+	 * @return the DSSs that could be read, mapped by file name
+	 * @throws IOException if the reading was interrupted
+	 */
+	private Map<String, DSS> readDSSFiles(File[] DSSFiles, Map<String, String> loadErrors) throws IOException
+	{
+		int parallelism = Integer.parseInt(System.getProperty("net.ipmdecisions.dssservice.CATALOG_LOAD_PARALLELISM",
+				String.valueOf(Runtime.getRuntime().availableProcessors())));
+		Map<String, DSS> DSSByFileName = new ConcurrentHashMap<>();
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+		try
+		{
+			pool.submit(() -> Arrays.stream(DSSFiles).parallel().forEach(f -> {
+				try
+				{
+					DSSByFileName.put(f.getName(), this.readDSSFile(f));
+				}
+				catch(IOException | IllegalArgumentException ex)
+				{
+					LOGGER.error("Could not read DSS file " + f.getName() + ": " + ex.getMessage());
+					loadErrors.put(f.getName(), String.valueOf(ex.getMessage()));
+				}
+			})).get();
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading the DSS files", ex);
+		}
+		catch(ExecutionException ex)
+		{
+			throw new IOException("Error reading the DSS files: " + ex.getCause().getMessage(), ex.getCause());
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		return new HashMap<>(DSSByFileName);
+	}
+
+	/**
+	 * Creates a new catalog from an existing one, re-reading only the given files. A file
+	 * that has been deleted is removed from the catalog. If a changed file can't be
+	 * read (e.g. because it is in the middle of being written), the previous version is kept.
+	 * @param previous the catalog to start from
+	 * @param changedDSSFileNames names of the DSS files that have been created, changed or deleted
+	 * @param riskMapsChanged true if the risk maps file should be re-read
+	 * @return a new catalog
+	 */
+	public DSSCatalog update(DSSCatalog previous, Set<String> changedDSSFileNames, boolean riskMapsChanged)
+	{
+		Map<String, DSS> DSSByFileName = new HashMap<>(previous.getDSSByFileName());
+		Map<String, String> loadErrors = new HashMap<>(previous.getLoadErrors());
+		for(String fileName:changedDSSFileNames)
+		{
+			loadErrors.remove(fileName);
+			File f = new File(getDSSListFilesPath(), fileName);
+			if(!f.isFile())
+			{
+				DSSByFileName.remove(fileName);
+				continue;
+			}
+			try
+			{
+				DSSByFileName.put(fileName, this.readDSSFile(f));
+			}
+			catch(IOException | IllegalArgumentException ex)
+			{
+				LOGGER.error("Could not read DSS file " + fileName + ". Keeping the previous version (if any). Error: " + ex.getMessage());
+				loadErrors.put(fileName, String.valueOf(ex.getMessage()));
+			}
+		}
+		DSSCatalog catalog = new DSSCatalog(DSSByFileName, riskMapsChanged ? this.readRiskMapsFile() : previous.getRiskMaps(), loadErrors);
+		LOGGER.info("Updated DSS catalog to generation " + catalog.getGeneration() + ". Changed files: " + changedDSSFileNames
+				+ (riskMapsChanged ? ", " + RISK_MAPS_FILE : ""));
+		return catalog;
+	}
+
+	/**
+	 * @return the risk maps, or null if the file is missing or can't be read
+	 */
+	private RiskMaps readRiskMapsFile()
+	{
+		File riskMapsFile = this.getRiskMapsFile();
+		if(!riskMapsFile.isFile())
+		{
+			LOGGER.warn("Risk maps file " + riskMapsFile.getPath() + " not found");
+			return null;
+		}
+		try
+		{
+			return mapper.convertValue(mapper.readValue(riskMapsFile, HashMap.class), new TypeReference<RiskMaps>(){});
+		}
+		catch(IOException | IllegalArgumentException ex)
+		{
+			LOGGER.error("Could not read risk maps file " + riskMapsFile.getPath() + ": " + ex.getMessage());
+			return null;
+		}
+	}
+
+	private File getRiskMapsFile()
+	{
+		return new File(getDSSListFilesPath() + "/" + RISK_MAPS_FOLDER + "/" + RISK_MAPS_FILE);
+	}
+
+	/**
+	 * @param f the YAML file
+	 * @return the DSS described in the file
+	 * @throws IOException
+	 */
+	public DSS readDSSFile(File f) throws IOException
+	{
+		// One pass, straight into the entity
+		return mapper.readValue(f, DSS.class);
+	}
+
+	/**
+	 * @return The folder containing the DSS YAML files
+	 */
+	public static String getDSSListFilesPath()
+	{
+		return System.getProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH");
+	}
+
+	private File[] getFilesWithExtension(String path, String extension) throws IOException {
+		File directory = new File(String.valueOf(path));
+		if (!directory.isDirectory()) {
+			throw new IOException(path + " is not a directory");
+		}
+		return directory.listFiles((dir, name) -> name.endsWith(extension));
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import net.ipmdecisions.dssservice.entity.DSS;
+import net.ipmdecisions.dssservice.entity.RiskMaps;
+
+/**
+ * A binary (Smile) copy of the parsed DSS catalog, so that a restart does not have to parse
+ * all the YAML files again. The snapshot is only used if it was made from exactly the same
+ * files (same names, sizes and modification times) as are in DSS_LIST_FILES_PATH now.
+ *
+ * The snapshot is written to net.ipmdecisions.dssservice.CATALOG_SNAPSHOT_FILE (default:
+ * dss_catalog.smile in java.io.tmpdir). Set it to an empty string to turn snapshots off.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class DSSCatalogSnapshot {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DSSCatalogSnapshot.class);
+
+	// Increase this when the entity classes change in a way that makes old snapshots unusable
+	private static final int FORMAT_VERSION = 1;
+
+	private static final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory())
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	/**
+	 * What is written to disk
+	 */
+	public static class Content {
+		private String fingerprint;
+		private Map<String, DSS> DSSByFileName;
+		private RiskMaps riskMaps;
+
+		public String getFingerprint() {
+			return fingerprint;
+		}
+
+		public void setFingerprint(String fingerprint) {
+			this.fingerprint = fingerprint;
+		}
+
+		public Map<String, DSS> getDSSByFileName() {
+			return DSSByFileName;
+		}
+
+		public void setDSSByFileName(Map<String, DSS> DSSByFileName) {
+			this.DSSByFileName = DSSByFileName;
+		}
+
+		public RiskMaps getRiskMaps() {
+			return riskMaps;
+		}
+
+		public void setRiskMaps(RiskMaps riskMaps) {
+			this.riskMaps = riskMaps;
+		}
+	}
+
+	private final File snapshotFile;
+
+	/**
+	 * @return the snapshot for the configured snapshot file, or null if snapshots are turned off
+	 */
+	public static DSSCatalogSnapshot getConfigured()
+	{
+		String path = System.getProperty("net.ipmdecisions.dssservice.CATALOG_SNAPSHOT_FILE",
+				new File(System.getProperty("java.io.tmpdir"), "dss_catalog.smile").getPath());
+		return path.isBlank() ? null : new DSSCatalogSnapshot(new File(path));
+	}
+
+	public DSSCatalogSnapshot(File snapshotFile)
+	{
+		this.snapshotFile = snapshotFile;
+	}
+
+	/**
+	 * @return the snapshot file
+	 */
+	public File getFile()
+	{
+		return this.snapshotFile;
+	}
+
+	/**
+	 * @param DSSFiles the DSS files in DSS_LIST_FILES_PATH
+	 * @param riskMapsFile the risk maps file (may not exist)
+	 * @return a hash of the names, sizes and modification times of the files
+	 */
+	public static String getFingerprint(File[] DSSFiles, File riskMapsFile)
+	{
+		try
+		{
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			md.update(("v" + FORMAT_VERSION + "\n").getBytes(StandardCharsets.UTF_8));
+			File[] sortedFiles = DSSFiles.clone();
+			Arrays.sort(sortedFiles, Comparator.comparing(File::getName));
+			for(File f:sortedFiles)
+			{
+				md.update((f.getName() + "|" + f.length() + "|" + f.lastModified() + "\n").getBytes(StandardCharsets.UTF_8));
+			}
+			if(riskMapsFile.isFile())
+			{
+				md.update((riskMapsFile.getName() + "|" + riskMapsFile.length() + "|" + riskMapsFile.lastModified() + "\n").getBytes(StandardCharsets.UTF_8));
+			}
+			StringBuilder hex = new StringBuilder();
+			for(byte b:md.digest())
+			{
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		}
+		catch(NoSuchAlgorithmException ex)
+		{
+			// All Java platforms are required to support SHA-256
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * @param fingerprint the fingerprint of the files as they are now
+	 * @return the snapshot content, or null if there is no usable snapshot for this fingerprint
+	 */
+	public Content read(String fingerprint)
+	{
+		if(!this.snapshotFile.isFile())
+		{
+			return null;
+		}
+		try
+		{
+			Content content = smileMapper.readValue(this.snapshotFile, Content.class);
+			if(!fingerprint.equals(content.getFingerprint()) || content.getDSSByFileName() == null)
+			{
+				LOGGER.info("The DSS catalog snapshot " + this.snapshotFile.getPath() + " is outdated");
+				return null;
+			}
+			return content;
+		}
+		catch(IOException ex)
+		{
+			LOGGER.warn("Could not read the DSS catalog snapshot " + this.snapshotFile.getPath() + ": " + ex.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the snapshot. Errors are logged, not thrown, since the snapshot is only an optimization
+	 * @param fingerprint the fingerprint of the files, taken BEFORE they were read
+	 * @param DSSByFileName the DSSs that were read
+	 * @param riskMaps the risk maps that were read. May be null
+	 */
+	public void write(String fingerprint, Map<String, DSS> DSSByFileName, RiskMaps riskMaps)
+	{
+		Content content = new Content();
+		content.setFingerprint(fingerprint);
+		content.setDSSByFileName(DSSByFileName);
+		content.setRiskMaps(riskMaps);
+		File tempFile = new File(this.snapshotFile.getPath() + ".tmp");
+		try
+		{
+			smileMapper.writeValue(tempFile, content);
+			// Readers must never see a half written snapshot
+			Files.move(tempFile.toPath(), this.snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(IOException ex)
+		{
+			LOGGER.warn("Could not write the DSS catalog snapshot " + this.snapshotFile.getPath() + ": " + ex.getMessage());
+			tempFile.delete();
+		}
+	}
+}
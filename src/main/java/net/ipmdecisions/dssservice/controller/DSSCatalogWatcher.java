@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.controller;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches DSS_LIST_FILES_PATH (and its risk_maps sub folder, and all the folders in i18n) for changes, and
+ * publishes a new {@link DSSCatalog} generation when something has changed. Changes
+ * typically come in bursts (e.g. a git pull), so we wait until the folders have been quiet for
+ * CATALOG_RELOAD_DEBOUNCE_MS (default 2000) milliseconds before updating the catalog.
+ * Only the DSS files that have changed are read again.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class DSSCatalogWatcher implements Runnable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DSSCatalogWatcher.class);
+
+	private final Path basePath;
+	private final long debounceMillis;
+	private final Map<Path, WatchKey> watchKeys = new HashMap<>();
+	private WatchService watchService;
+	private Thread thread;
+
+	public DSSCatalogWatcher(String basePath)
+	{
+		this.basePath = Paths.get(basePath).toAbsolutePath().normalize();
+		this.debounceMillis = Long.parseLong(System.getProperty("net.ipmdecisions.dssservice.CATALOG_RELOAD_DEBOUNCE_MS", "2000"));
+	}
+
+	/**
+	 * Starts watching in a background (daemon) thread
+	 * @throws IOException if the folders can't be watched
+	 */
+	public synchronized void start() throws IOException
+	{
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.register(this.basePath);
+		this.registerTree(this.basePath.resolve(DSSCatalogLoader.I18N_FOLDER));
+		this.register(this.basePath.resolve(DSSCatalogLoader.RISK_MAPS_FOLDER));
+		this.thread = new Thread(this, "DSSCatalogWatcher");
+		this.thread.setDaemon(true);
+		this.thread.start();
+		LOGGER.info("Watching " + this.basePath + " for changes in the DSS catalog");
+	}
+
+	/**
+	 * Stops the watcher thread
+	 */
+	public synchronized void stop()
+	{
+		if(this.watchService != null)
+		{
+			try
+			{
+				this.watchService.close();
+			}
+			catch(IOException ex)
+			{
+				LOGGER.warn("Error closing the watch service: " + ex.getMessage());
+			}
+		}
+		if(this.thread != null)
+		{
+			this.thread.interrupt();
+		}
+	}
+
+	/**
+	 * @return true if the folder was not watched before
+	 */
+	private boolean register(Path folder) throws IOException
+	{
+		WatchKey key = this.watchKeys.get(folder);
+		if(Files.isDirectory(folder) && (key == null || !key.isValid()))
+		{
+			this.watchKeys.put(folder, folder.register(this.watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Registers the folder and all its sub folders. The translation bundles are in sub folders
+	 * of i18n (e.g. i18n/no/nibio/vips_nb.properties), and a WatchService only watches one folder
+	 * @return true if any of the folders was not watched before
+	 */
+	private boolean registerTree(Path folder) throws IOException
+	{
+		if(!Files.isDirectory(folder))
+		{
+			return false;
+		}
+		boolean[] registered = {false};
+		Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				registered[0] = DSSCatalogWatcher.this.register(dir) || registered[0];
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return registered[0];
+	}
+
+	@Override
+	public void run()
+	{
+		try
+		{
+			while(!Thread.currentThread().isInterrupted())
+			{
+				// Block until something happens
+				Set<Path> changedPaths = new HashSet<>();
+				boolean overflow = this.collectEvents(this.watchService.take(), changedPaths);
+				// Debounce: Keep collecting until the folders have been quiet for a while
+				WatchKey key;
+				while((key = this.watchService.poll(this.debounceMillis, TimeUnit.MILLISECONDS)) != null)
+				{
+					overflow = this.collectEvents(key, changedPaths) || overflow;
+				}
+				this.publish(changedPaths, overflow);
+			}
+		}
+		catch(InterruptedException | ClosedWatchServiceException ex)
+		{
+			LOGGER.info("Stopped watching " + this.basePath);
+		}
+	}
+
+	/**
+	 * @return true if events have been lost, so that we need a full reload
+	 */
+	private boolean collectEvents(WatchKey key, Set<Path> changedPaths)
+	{
+		boolean overflow = false;
+		Path folder = (Path) key.watchable();
+		for(WatchEvent<?> event:key.pollEvents())
+		{
+			if(event.kind() == OVERFLOW)
+			{
+				overflow = true;
+				continue;
+			}
+			changedPaths.add(folder.resolve((Path) event.context()));
+		}
+		// If the key is no longer valid, the folder has been deleted
+		return !key.reset() || overflow;
+	}
+
+	private void publish(Set<Path> changedPaths, boolean overflow)
+	{
+		Set<String> changedDSSFileNames = new HashSet<>();
+		boolean riskMapsChanged = false;
+		boolean i18nChanged = false;
+		Path i18nFolder = this.basePath.resolve(DSSCatalogLoader.I18N_FOLDER);
+		Path riskMapsFolder = this.basePath.resolve(DSSCatalogLoader.RISK_MAPS_FOLDER);
+		for(Path changedPath:changedPaths)
+		{
+			Path folder = changedPath.getParent();
+			String fileName = changedPath.getFileName().toString();
+			if(folder.equals(this.basePath))
+			{
+				if(fileName.endsWith(DSSCatalogLoader.DSS_FILE_EXTENSION))
+				{
+					changedDSSFileNames.add(fileName);
+				}
+				else if(changedPath.equals(i18nFolder) || changedPath.equals(riskMapsFolder))
+				{
+					try
+					{
+						// If the sub folder has been created (or replaced), we need to watch it
+						// and read everything again
+						overflow = (changedPath.equals(i18nFolder) ? this.registerTree(changedPath) : this.register(changedPath)) || overflow;
+					}
+					catch(IOException ex)
+					{
+						LOGGER.error("Could not watch " + changedPath + ": " + ex.getMessage());
+					}
+				}
+			}
+			else if(folder.startsWith(i18nFolder))
+			{
+				i18nChanged = true;
+				try
+				{
+					// A new folder may already have bundles in it. They are read anyway, since i18n has changed
+					this.registerTree(changedPath);
+				}
+				catch(IOException ex)
+				{
+					LOGGER.error("Could not watch " + changedPath + ": " + ex.getMessage());
+				}
+			}
+			else if(folder.equals(riskMapsFolder) && fileName.equals(DSSCatalogLoader.RISK_MAPS_FILE))
+			{
+				riskMapsChanged = true;
+			}
+		}
+
+		try
+		{
+			if(overflow)
+			{
+				DSSCatalog.reload();
+			}
+			else if(!changedDSSFileNames.isEmpty() || riskMapsChanged || i18nChanged)
+			{
+				// A new generation is published even if only translations have changed,
+				// so that anything cached for the previous generation is discarded
+				DSSCatalog.refresh(changedDSSFileNames, riskMapsChanged);
+			}
+		}
+		catch(IOException ex)
+		{
+			LOGGER.error("Could not update the DSS catalog: " + ex.getMessage());
+		}
+	}
+}
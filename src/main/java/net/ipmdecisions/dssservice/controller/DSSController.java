@@ -22,182 +22,111 @@ package net.ipmdecisions.dssservice.controller;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
-import com.github.wnameless.json.flattener.JsonFlattener;
-import com.github.wnameless.json.unflattener.JsonUnflattener;
 
 import net.ipmdecisions.dssservice.clients.EPPOClient;
 import net.ipmdecisions.dssservice.entity.DSS;
 import net.ipmdecisions.dssservice.entity.DSSModel;
 import net.ipmdecisions.dssservice.services.DSSService;
+import net.ipmdecisions.dssservice.util.VectorTileEncoder;
 import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.locationtech.jts.geom.CoordinateFilter;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.operation.overlayng.OverlayNG;
+import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wololo.geojson.Feature;
+import org.wololo.geojson.FeatureCollection;
+import org.wololo.jts2geojson.GeoJSONWriter;
 
 public class DSSController {
 	private static final Logger LOGGER = LoggerFactory.getLogger(DSSController.class);
+	// The buffer around coverage tiles, in tile coordinates
+	private static final int COVERAGE_TILE_BUFFER = 64;
 	/**
-     * Pulls YAML files from set path and creates a list of all DSSs This should
-     * be replaced by a decent database
+     * Creates a list of all DSSs from the in-memory catalog. The DSSs are views of the
+     * shared catalog (see {@link DSS#withModels(List)}), so they must NOT be changed
      *
      * @return
      * @throws IOException
      */
     public List<DSS> getDSSListObj(Boolean platformValidated, String language, String executionType) throws IOException {
-    	
-        List<DSS> DSSList = new ArrayList<>();
-        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-
-        File[] DSSInfoFiles = this.getFilesWithExtension(System.getProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH"), ".yaml");
-        for (File f : DSSInfoFiles) {
+        DSSCatalog catalog = DSSCatalog.getCurrent();
+        return this.getDSSListObj(catalog, catalog.getModelIndex().getModels(platformValidated, executionType), language, true);
+    }
 
-            DSSList.add(mapper.convertValue(mapper.readValue(f, HashMap.class), new TypeReference<DSS>(){}));
-        }
-        // If the platformValidated is set, filter models with this as the criterium
-        
-        if(platformValidated != null)
-        {
-        	for(DSS dss:DSSList)
-        	{
-        		dss.setModels(dss.getModels().stream()
-        				.filter(model->model.getPlatform_validated().equals(platformValidated))
-        				.collect(Collectors.toList()));
-        	}
-        }
-        
-        if(executionType != null && DSSModel.Execution.isValidExecutionType(executionType))
-        {
-        	for(DSS dss:DSSList)
-        	{
-        		dss.setModels(dss.getModels().stream()
-        				.filter(model->model.getExecution().getType().equals(executionType))
-        				.collect(Collectors.toList()));
-        	}
+    /**
+     * Creates a list of DSSs with the selected models from the catalog. The DSSs are views of the
+     * shared catalog (see {@link DSS#withModels(List)}), so they must NOT be changed. Create
+     * a new view with {@link DSS#withModels(List)} if you need to filter the models further
+     *
+     * @param catalog the catalog that the model ordinals refer to
+     * @param models the ordinals of the models to include (see {@link DSSModelIndex})
+     * @param language two-letter code for language. If null, "default" is used
+     * @param includeEmptyDSSs if false, DSSs without any of the selected models are left out
+     * @return the DSSs, each with only the selected models
+     * @throws IOException
+     */
+    public List<DSS> getDSSListObj(DSSCatalog catalog, BitSet models, String language, Boolean includeEmptyDSSs) throws IOException {
+        List<DSS> DSSList = new ArrayList<>();
+        List<DSS> translatedDSSList = catalog.getDSSList(language);
+        DSSModelIndex index = catalog.getModelIndex();
+        for (int DSSOrdinal = 0; DSSOrdinal < translatedDSSList.size(); DSSOrdinal++) {
+            BitSet DSSModels = index.getModelsForDSS(DSSOrdinal);
+            DSSModels.and(models);
+            if(DSSModels.isEmpty() && !includeEmptyDSSs)
+            {
+                continue;
+            }
+            DSSList.add(this.getDSSView(translatedDSSList.get(DSSOrdinal), index.getFirstModelOrdinal(DSSOrdinal), DSSModels));
         }
-        
-        // i18n
-        language = language != null ? language : "default";
-    	for(DSS dss:DSSList)
-    	{
-    		dss = this.getDSSTranslated(dss, language);
-    	}
         return DSSList;
     }
+
+    /**
+     * @param dss a DSS from the catalog (translated or not)
+     * @param firstModelOrdinal the ordinal of the first model in the DSS
+     * @param DSSModels the ordinals of the models to keep. Must all belong to this DSS
+     * @return a view of the DSS with only the selected models. The models are shared with the catalog
+     */
+    private DSS getDSSView(DSS dss, int firstModelOrdinal, BitSet DSSModels)
+    {
+        List<DSSModel> selectedModels = new ArrayList<>(DSSModels.cardinality());
+        for (int ordinal = DSSModels.nextSetBit(0); ordinal >= 0; ordinal = DSSModels.nextSetBit(ordinal + 1)) {
+            selectedModels.add(dss.getModels().get(ordinal - firstModelOrdinal));
+        }
+        return dss.withModels(Collections.unmodifiableList(selectedModels));
+    }
     
+    /**
+     * Translates the DSS in place. To get translated DSSs from the catalog, use {@link DSSCatalog#getDSSList(String)},
+     * which is cached
+     * @param dss the DSS to translate
+     * @param language two-letter code for language
+     * @return the same DSS object
+     * @throws IOException
+     */
     public DSS getDSSTranslated(DSS dss, String language) throws IOException
     {
-    	String basePath = dss.getId() + "." + dss.getVersion().replace(".","_");
-    	LOGGER.debug("get " + language + " for " + dss.getId());
-    	File file = new File(System.getProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH") + "/i18n");
-    	URL[] urls = {file.toURI().toURL()};
-    	ClassLoader loader = new URLClassLoader(urls);
-    	try
-    	{
-    		ResourceBundle bundle = ResourceBundle.getBundle(dss.getId(), new Locale(language), loader);
-			/*
-    		Enumeration<String> e = bundle.getKeys();
-
-    		while(e.hasMoreElements())
-    		{
-    			String key = e.nextElement();
-				if(key.indexOf("MELIAE") > 0) {
-					LOGGER.debug(key + ": |" + this.getBundleStringSafe(bundle, key) + "|" + this.getBundleStringSafe(bundle, key).isBlank() + "/" + this.getBundleStringSafe(bundle, key).isEmpty());
-				}
-    		}*/
-			//if()
-			LOGGER.debug("Translating metadata. DSS.name=" + dss.getName());
-    		dss.setName(this.getBundleStringSafe(bundle,basePath + ".name").isBlank() ? dss.getName() : this.getBundleStringSafe(bundle,basePath + ".name"));
-    		for(DSSModel model:dss.getModels())
-			{
-    			String modelPath = basePath + ".models." + model.getId();
-				// Putting in an extra try-catch here to keep model iteration running after a model is missing params
-				try
-				{
-					model.setName(this.getBundleStringSafe(bundle,modelPath + ".name").isBlank() ? model.getName() : this.getBundleStringSafe(bundle,modelPath + ".name"));
-				}
-				catch(MissingResourceException ex)
-				{
-					System.out.println("WARNING: " + ex.getMessage());
-					continue;
-				}
-    			model.setDescription(this.getBundleStringSafe(bundle,modelPath + ".description").isBlank() ? model.getDescription() : this.getBundleStringSafe(bundle,modelPath + ".description"));
-
-    			model.setPurpose(this.getBundleStringSafe(bundle,modelPath + ".purpose").isBlank() ? model.getPurpose() : this.getBundleStringSafe(bundle,modelPath + ".purpose"));
-				// LINK DSS lack some properties
-				if(model.getOutput() != null && ! model.getExecution().getType().equals(DSSModel.Execution.TYPE_LINK)) {
-					DSSModel.Output.WarningStatusInterpretation[] wsi = model.getOutput().getWarning_status_interpretation();
-					for (int i = 0; i < wsi.length; i++) {
-						wsi[i].setExplanation(this.getBundleStringSafe(bundle,modelPath + ".output.warning_status_interpretation." + i + ".explanation").isBlank() ? wsi[i].getExplanation() : this.getBundleStringSafe(bundle,modelPath + ".output.warning_status_interpretation." + i + ".explanation"));
-						wsi[i].setRecommended_action(this.getBundleStringSafe(bundle,modelPath + ".output.warning_status_interpretation." + i + ".recommended_action").isBlank() ? wsi[i].getRecommended_action() : this.getBundleStringSafe(bundle,modelPath + ".output.warning_status_interpretation." + i + ".recommended_action"));
-					}
-					model.getOutput().setChart_heading(this.getBundleStringSafe(bundle,modelPath + ".output.chart_heading").isBlank() ? model.getOutput().getChart_heading() : this.getBundleStringSafe(bundle,modelPath + ".output.chart_heading"));
-					for (DSSModel.Output.ChartGroup cg : model.getOutput().getChart_groups()) {
-						cg.setTitle(this.getBundleStringSafe(bundle,modelPath + ".output.chart_groups." + cg.getId() + ".title").isBlank() ? cg.getTitle() : this.getBundleStringSafe(bundle,modelPath + ".output.chart_groups." + cg.getId() + ".title"));
-					}
-					for (DSSModel.Output.ResultParameter rp : model.getOutput().getResult_parameters()) {
-						rp.setTitle(this.getBundleStringSafe(bundle,modelPath + ".output.result_parameters." + rp.getId() + ".title").isBlank() ? rp.getTitle() : this.getBundleStringSafe(bundle,modelPath + ".output.result_parameters." + rp.getId() + ".title"));
-						rp.setDescription(this.getBundleStringSafe(bundle,modelPath + ".output.result_parameters." + rp.getId() + ".description").isBlank() ? rp.getDescription() : this.getBundleStringSafe(bundle,modelPath + ".output.result_parameters." + rp.getId() + ".description"));
-					}
-				}
-    			
-    			// Flatten the current input schema
-    			Map<String, Object> inputSchemaProperties = JsonFlattener.flattenAsMap(model.getExecution().getInput_schema());
-    			// Replace the matching properties
-    			Integer pathToInputSchemaLength = (modelPath + ".execution.input_schema.").length();
-    			for(String key: Collections.list(bundle.getKeys()).stream()
-    					.filter(k->k.startsWith(modelPath + ".execution.input_schema.")).collect(Collectors.toList())
-    					) 
-    			{
-    				// Remove the path to input_schema
-    				String inputSchemaPath = key.substring(pathToInputSchemaLength);
-    				//System.out.println(inputSchemaPath);
-    				if(inputSchemaProperties.containsKey(inputSchemaPath))
-    				{
-    					inputSchemaProperties.put(inputSchemaPath, this.getBundleStringSafe(bundle,key).isBlank() ? inputSchemaProperties.get(inputSchemaPath) : this.getBundleStringSafe(bundle,key));
-    				}
-    			}
-    			
-    			// De-flatten and set as input schema
-    			model.getExecution().setInput_schema(JsonUnflattener.unflatten(inputSchemaProperties));
-			}
-    	}
-    	catch(MissingResourceException ex)
+    	try(DSSTranslator translator = new DSSTranslator(language))
     	{
-    		LOGGER.warn("WARNING [" + this.getClass().getName() + ".GetDSSTranslated]: " + ex.getMessage());
+    		return translator.translate(dss);
     	}
-    	return dss;
     }
-
-	private String getBundleStringSafe(ResourceBundle bundle, String key)
-	{
-		try
-		{
-			return bundle.getString(key);
-		}
-		catch(MissingResourceException ex)
-		{
-			LOGGER.debug("DEBUG [" + this.getClass().getName() + ".getBundleStringSafe]: " + ex.getMessage());
-			return "";
-		}
-	}
     
     /**
-     * Pulls YAML files from set path and creates a list of all DSSs This should
-     * be replaced by a decent database
+     * Creates a list of all DSSs from the in-memory catalog
      *
      * @return
      * @throws IOException
@@ -206,24 +135,156 @@ public class DSSController {
     	return this.getDSSListObj(platformValidated, null, null);
     }
     
-    private File[] getFilesWithExtension(String path, String extension) throws IOException {
-        File directory = new File(path);
-        if (!directory.isDirectory()) {
-            throw new IOException(path + " is not a directory");
+    /**
+     * Looks up the DSS in the catalog by id, and returns a view with the models that match the filters
+     *
+     * @param DSSid the id of the DSS
+     * @param platformValidated if not null, only models with this validation status are included
+     * @param language two-letter code for language. If null, "default" is used
+     * @param executionType if a valid execution type, only models of this type are included
+     * @return a view of the DSS (read only!), or null if not found
+     * @throws IOException
+     */
+    public DSS getDSSById(String DSSid, Boolean platformValidated, String language, String executionType) throws IOException
+    {
+        DSSCatalog catalog = DSSCatalog.getCurrent();
+        DSSModelIndex index = catalog.getModelIndex();
+        Integer DSSOrdinal = index.getDSSOrdinal(DSSid);
+        if (DSSOrdinal == null) {
+            return null;
         }
-        return directory.listFiles((dir, name) -> name.endsWith(extension));
+        BitSet DSSModels = index.getModelsForDSS(DSSOrdinal);
+        DSSModels.and(index.getModels(platformValidated, executionType));
+        return this.getDSSView(catalog.getDSSList(language).get(DSSOrdinal), index.getFirstModelOrdinal(DSSOrdinal), DSSModels);
     }
-    
-    public DSS getDSSById(String DSSid, Boolean platformValidated, String language, String executionType) throws IOException
+
+    /**
+     * Looks up the model in the catalog by DSS id and model id
+     *
+     * @param catalog the catalog to look in
+     * @param DSSId the id of the DSS
+     * @param modelId the id of the model
+     * @param language two-letter code for language. If null, "default" is used
+     * @param executionType if a valid execution type, the model is only returned if it is of this type
+     * @return the translated model from the catalog (Read only!), or null if not found
+     * @throws IOException
+     */
+    public DSSModel getDSSModel(DSSCatalog catalog, String DSSId, String modelId, String language, String executionType) throws IOException
     {
-        Optional<DSS> matchingDSS = this.getDSSListObj(platformValidated, language, executionType).stream().filter(dss -> dss.getId().equals(DSSid)).findFirst();
-        if (matchingDSS.isPresent()) {
-            return matchingDSS.get();
-        } else {
+        DSSModelIndex index = catalog.getModelIndex();
+        Integer ordinal = index.getModelOrdinal(DSSId, modelId);
+        if (ordinal == null || !index.getModels(null, executionType).get(ordinal)) {
             return null;
         }
+        int DSSOrdinal = index.getDSSOrdinal(ordinal);
+        return catalog.getDSSList(language).get(DSSOrdinal).getModels().get(ordinal - index.getFirstModelOrdinal(DSSOrdinal));
     }
     
+    /**
+     * Creates GeoJSON features with the areas where the models are valid. Models that are valid
+     * everywhere get a polygon covering the globe, and have the property "global" set to true.
+     * Models without an area have no geometry.
+     *
+     * @param catalog the catalog that the model ordinals refer to
+     * @param models the ordinals of the models to include (see {@link DSSModelIndex})
+     * @param tolerance the simplification tolerance in degrees. 0 means full resolution
+     * @return one feature per model, with the properties dss_id, model_id and global
+     * @throws IOException
+     */
+    public FeatureCollection getCoverage(DSSCatalog catalog, BitSet models, double tolerance) throws IOException
+    {
+        DSSModelIndex index = catalog.getModelIndex();
+        DSSModelSpatialIndex spatialIndex = catalog.getSpatialIndex();
+        GeoJSONWriter writer = new GeoJSONWriter();
+        List<Feature> features = new ArrayList<>();
+        for (int ordinal = models.nextSetBit(0); ordinal >= 0; ordinal = models.nextSetBit(ordinal + 1)) {
+            Geometry area = spatialIndex.isGlobal(ordinal)
+                    ? new GeometryFactory().toGeometry(new Envelope(-180.0, 180.0, -90.0, 90.0))
+                    : spatialIndex.getValidityArea(ordinal, tolerance);
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("dss_id", catalog.getDSSList().get(index.getDSSOrdinal(ordinal)).getId());
+            properties.put("model_id", index.getModel(ordinal).getId());
+            properties.put("global", spatialIndex.isGlobal(ordinal));
+            features.add(new Feature(area != null ? writer.write(area) : null, properties));
+        }
+        return writer.write(features);
+    }
+
+    /**
+     * Creates a <a href="https://github.com/mapbox/vector-tile-spec">Mapbox Vector Tile</a> with the areas
+     * where the models are valid, in the layer "coverage". The tiles use the usual Web Mercator tiling scheme (z/x/y).
+     * The areas are simplified to about half a pixel (on a 256 pixel tile) and clipped to the tile
+     * with a small buffer, so that the polygon edges along the tile borders are not drawn.
+     *
+     * @param catalog the catalog that the model ordinals refer to
+     * @param models the ordinals of the models to include (see {@link DSSModelIndex})
+     * @param zoom the zoom level
+     * @param x the column of the tile
+     * @param y the row of the tile
+     * @return the encoded tile, with one feature per model that has the properties dss_id and model_id.
+     * Empty if no models are valid in the tile
+     * @throws IOException
+     */
+    public byte[] getCoverageTile(DSSCatalog catalog, BitSet models, int zoom, int x, int y) throws IOException
+    {
+        int tileCount = 1 << zoom;
+        double buffer = (double) COVERAGE_TILE_BUFFER / VectorTileEncoder.DEFAULT_EXTENT;
+        Envelope tileEnvelope = new Envelope(
+                getTileLongitude(x - buffer, tileCount), getTileLongitude(x + 1 + buffer, tileCount),
+                getTileLatitude(y + 1 + buffer, tileCount), getTileLatitude(y - buffer, tileCount)
+        );
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Geometry tileArea = geometryFactory.toGeometry(tileEnvelope);
+        // One pixel is fewer degrees towards the poles. The tolerance is rounded down to a detail
+        // level, so that only a few simplified versions of each area are made
+        double maxLatitude = Math.min(85.0, Math.max(Math.abs(tileEnvelope.getMinY()), Math.abs(tileEnvelope.getMaxY())));
+        double tolerance = DSSModelSpatialIndex.getDetailLevelTolerance(
+                360.0 / tileCount / 512 * Math.cos(Math.toRadians(maxLatitude))
+        );
+
+        DSSModelIndex index = catalog.getModelIndex();
+        DSSModelSpatialIndex spatialIndex = catalog.getSpatialIndex();
+        BitSet tileModels = spatialIndex.getModels(List.of(tileArea));
+        tileModels.and(models);
+        VectorTileEncoder encoder = new VectorTileEncoder("coverage", VectorTileEncoder.DEFAULT_EXTENT);
+        for (int ordinal = tileModels.nextSetBit(0); ordinal >= 0; ordinal = tileModels.nextSetBit(ordinal + 1)) {
+            Geometry clippedArea;
+            try {
+                clippedArea = spatialIndex.isGlobal(ordinal) ? tileArea
+                        : OverlayNGRobust.overlay(spatialIndex.getValidityArea(ordinal, tolerance), tileArea, OverlayNG.INTERSECTION);
+            } catch (RuntimeException ex) {
+                // E.g. a geometry collection, which can't be clipped. One model should not break the tile
+                LOGGER.warn("Could not clip the validity area of " + index.getModel(ordinal).getId() + " to tile " + zoom + "/" + x + "/" + y + ": " + ex.getMessage());
+                continue;
+            }
+            if (clippedArea.isEmpty()) {
+                continue;
+            }
+            // Lon/lat to tile coordinates
+            Geometry tileGeometry = clippedArea.copy();
+            tileGeometry.apply((CoordinateFilter) coordinate -> {
+                coordinate.x = ((coordinate.x + 180.0) / 360.0 * tileCount - x) * VectorTileEncoder.DEFAULT_EXTENT;
+                double latitude = Math.toRadians(coordinate.y);
+                coordinate.y = ((1 - Math.log(Math.tan(latitude) + 1 / Math.cos(latitude)) / Math.PI) / 2 * tileCount - y) * VectorTileEncoder.DEFAULT_EXTENT;
+            });
+            Map<String, String> attributes = new LinkedHashMap<>();
+            attributes.put("dss_id", catalog.getDSSList().get(index.getDSSOrdinal(ordinal)).getId());
+            attributes.put("model_id", index.getModel(ordinal).getId());
+            encoder.addFeature(tileGeometry, attributes);
+        }
+        return encoder.encode();
+    }
+
+    private static double getTileLongitude(double x, int tileCount)
+    {
+        return x / tileCount * 360.0 - 180.0;
+    }
+
+    private static double getTileLatitude(double y, int tileCount)
+    {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / tileCount))));
+    }
+
     /**
      * Archive a file: Giving it a unique name and making sure it doesn't end in ".yaml"
      * @param dss
@@ -231,17 +292,13 @@ public class DSSController {
     public void archiveDSSFile(DSS dss) throws IOException
     {
     	// Find the file with this DSS
-    	ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-    	File[] DSSInfoFiles = this.getFilesWithExtension(System.getProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH"), ".yaml");
-    	for (File f : DSSInfoFiles) {
-    		DSS matchingDSS = mapper.convertValue(mapper.readValue(f, HashMap.class), new TypeReference<DSS>(){});
-            if(dss.getId().equals(matchingDSS.getId()) && dss.getVersion().equals(matchingDSS.getVersion()))
-            {
-            	String archiveFileName = this.getDSSFileName(dss) + ".yaml_bak";
-            	f.renameTo(new File(f.getParent() + "/" + archiveFileName));
-            	break;
-            }
-        }
+    	String fileName = DSSCatalog.getCurrent().getFileName(dss);
+    	if(fileName != null)
+    	{
+    		File f = new File(DSSCatalogLoader.getDSSListFilesPath(), fileName);
+    		String archiveFileName = this.getDSSFileName(dss) + ".yaml_bak";
+    		f.renameTo(new File(f.getParent() + "/" + archiveFileName));
+    	}
     }
     
     public String getDSSFileName(DSS dss)
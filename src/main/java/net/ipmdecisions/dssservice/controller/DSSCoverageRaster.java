@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.controller;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ipmdecisions.dssservice.util.MultiResolutionGeometry;
+
+/**
+ * A grid over the validity areas of the models, where each cell has the id of the combination
+ * of models that are valid in all of the cell, and models that are valid in parts of it (the cell
+ * is on their boundary). A point lookup is then an array lookup, plus exact tests for the boundary
+ * models of the cell. The grid only covers the bounding box of the validity areas, and is kept off heap.
+ *
+ * The grid is optional. It's turned on by setting net.ipmdecisions.dssservice.COVERAGE_RASTER_RESOLUTION
+ * to the cell size in degrees, e.g. 0.05.
+ *
+ * Rasterizing a model is the expensive part, so the rasterized models are kept until the next build.
+ * When the catalog changes, only models with a changed valid_spatial are rasterized again.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class DSSCoverageRaster {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DSSCoverageRaster.class);
+
+	private static final int INSIDE = 0;
+	private static final int BOUNDARY = 1;
+
+	// From the previous build, for reuse. Only valid for the same resolution
+	private static Map<DSSModelValidity, int[]> previousRuns = new HashMap<>();
+	private static double previousResolution;
+
+	private final GeometryFactory geometryFactory = new GeometryFactory();
+	private final double resolution;
+	private final int minColumn;
+	private final int minRow;
+	private final int columns;
+	private final int rows;
+	// The combination id of each cell, row by row. 0 is the empty combination
+	private final IntBuffer cellIds;
+	private final List<DSSModelPointCache.Cell> combinations = new ArrayList<>();
+
+	/**
+	 * @return the configured cell size in degrees, or 0 if the raster is turned off. A value that can't be
+	 * used is logged, and turns the raster off
+	 */
+	static double getConfiguredResolution()
+	{
+		String resolution = System.getProperty("net.ipmdecisions.dssservice.COVERAGE_RASTER_RESOLUTION", "");
+		if(resolution.isBlank())
+		{
+			return 0;
+		}
+		try
+		{
+			double retVal = Double.parseDouble(resolution);
+			// The negated comparison also catches NaN
+			if(!(retVal > 0) || Double.isInfinite(retVal))
+			{
+				LOGGER.error("COVERAGE_RASTER_RESOLUTION must be a positive number, but is " + resolution + ". Using the point cache instead");
+				return 0;
+			}
+			return retVal;
+		}
+		catch(NumberFormatException ex)
+		{
+			LOGGER.error("Could not read COVERAGE_RASTER_RESOLUTION (" + resolution + "). Using the point cache instead");
+			return 0;
+		}
+	}
+
+	/**
+	 * @param index the model index
+	 * @param validityAreas the validity area of each model ordinal (null for global models and models without an area)
+	 * @param resolution the cell size in degrees
+	 */
+	DSSCoverageRaster(DSSModelIndex index, MultiResolutionGeometry[] validityAreas, double resolution)
+	{
+		long start = System.currentTimeMillis();
+		this.resolution = resolution;
+
+		// Rasterize each model, or reuse it from the previous build
+		Map<DSSModelValidity, int[]> reusableRuns;
+		synchronized(DSSCoverageRaster.class)
+		{
+			reusableRuns = resolution == previousResolution ? previousRuns : Map.of();
+		}
+		Map<DSSModelValidity, int[]> runsByValidity = new HashMap<>();
+		int[][] runsByOrdinal = new int[validityAreas.length][];
+		Envelope extent = new Envelope();
+		int rasterized = 0;
+		for(int ordinal = 0; ordinal < validityAreas.length; ordinal++)
+		{
+			if(validityAreas[ordinal] == null)
+			{
+				continue;
+			}
+			DSSModelValidity validity = index.getValidity(ordinal);
+			int[] runs = runsByValidity.get(validity);
+			if(runs == null)
+			{
+				runs = reusableRuns.get(validity);
+				if(runs == null)
+				{
+					runs = this.rasterize(validityAreas[ordinal]);
+					rasterized++;
+				}
+				runsByValidity.put(validity, runs);
+			}
+			runsByOrdinal[ordinal] = runs;
+			extent.expandToInclude(validityAreas[ordinal].getGeometry().getEnvelopeInternal());
+		}
+		synchronized(DSSCoverageRaster.class)
+		{
+			previousRuns = runsByValidity;
+			previousResolution = resolution;
+		}
+
+		this.combinations.add(new DSSModelPointCache.Cell(new BitSet(), new int[0]));
+		if(extent.isNull())
+		{
+			this.minColumn = this.minRow = this.columns = this.rows = 0;
+			this.cellIds = IntBuffer.allocate(0);
+			return;
+		}
+		this.minColumn = this.getColumn(extent.getMinX());
+		this.minRow = this.getRow(extent.getMinY());
+		this.columns = this.getColumn(extent.getMaxX()) - this.minColumn + 1;
+		this.rows = this.getRow(extent.getMaxY()) - this.minRow + 1;
+		if((long) this.columns * this.rows * Integer.BYTES > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("A coverage raster with " + this.columns + "x" + this.rows + " cells is too large. Use a larger cell size");
+		}
+		this.cellIds = ByteBuffer.allocateDirect(this.columns * this.rows * Integer.BYTES).asIntBuffer();
+
+		// Add the models one by one. Since they are always added in the same order, the
+		// combination id before and the model added identify the combination after
+		Map<Long, Integer> transitions = new HashMap<>();
+		for(int ordinal = 0; ordinal < runsByOrdinal.length; ordinal++)
+		{
+			int[] runs = runsByOrdinal[ordinal];
+			if(runs == null)
+			{
+				continue;
+			}
+			for(int i = 0; i < runs.length; i += 4)
+			{
+				int rowOffset = (runs[i] - this.minRow) * this.columns - this.minColumn;
+				int previousId = -1;
+				int newId = -1;
+				for(int column = runs[i + 1]; column < runs[i + 2]; column++)
+				{
+					int id = this.cellIds.get(rowOffset + column);
+					// Neighbouring cells mostly have the same combination
+					if(id != previousId)
+					{
+						previousId = id;
+						newId = this.getCombinationId(transitions, id, ordinal, runs[i + 3]);
+					}
+					this.cellIds.put(rowOffset + column, newId);
+				}
+			}
+		}
+		LOGGER.info("Built the coverage raster (" + this.columns + "x" + this.rows + " cells, " + this.combinations.size()
+				+ " combinations, " + rasterized + " models rasterized) in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	private int getCombinationId(Map<Long, Integer> transitions, int id, int ordinal, int kind)
+	{
+		return transitions.computeIfAbsent(((long) id << 32) | ((long) ordinal << 1) | kind, key -> {
+			DSSModelPointCache.Cell previous = this.combinations.get(id);
+			BitSet insideModels = (BitSet) previous.insideModels.clone();
+			int[] boundaryModels = previous.boundaryModels;
+			if(kind == INSIDE)
+			{
+				insideModels.set(ordinal);
+			}
+			else
+			{
+				boundaryModels = Arrays.copyOf(boundaryModels, boundaryModels.length + 1);
+				boundaryModels[boundaryModels.length - 1] = ordinal;
+			}
+			this.combinations.add(new DSSModelPointCache.Cell(insideModels, boundaryModels));
+			return this.combinations.size() - 1;
+		});
+	}
+
+	private int getColumn(double longitude)
+	{
+		return (int) Math.floor(longitude / this.resolution);
+	}
+
+	private int getRow(double latitude)
+	{
+		return (int) Math.floor(latitude / this.resolution);
+	}
+
+	/**
+	 * @param longitude in decimal degrees (WGS84)
+	 * @param latitude in decimal degrees (WGS84)
+	 * @return the models that are valid in all of the cell, and the models that are valid in parts of it
+	 */
+	DSSModelPointCache.Cell getCell(double longitude, double latitude)
+	{
+		int column = this.getColumn(longitude) - this.minColumn;
+		int row = this.getRow(latitude) - this.minRow;
+		if(column < 0 || column >= this.columns || row < 0 || row >= this.rows)
+		{
+			return this.combinations.get(0);
+		}
+		return this.combinations.get(this.cellIds.get(row * this.columns + column));
+	}
+
+	/**
+	 * Finds the cells that are inside or on the boundary of the area, by splitting the
+	 * bounding box into smaller and smaller blocks
+	 * @return runs of cells as (row, first column, last column + 1, INSIDE|BOUNDARY)
+	 */
+	private int[] rasterize(MultiResolutionGeometry area)
+	{
+		Envelope envelope = area.getGeometry().getEnvelopeInternal();
+		IntList runs = new IntList();
+		int firstColumn = this.getColumn(envelope.getMinX());
+		int firstRow = this.getRow(envelope.getMinY());
+		this.rasterize(area, firstColumn, this.getColumn(envelope.getMaxX()) + 1, firstRow, this.getRow(envelope.getMaxY()) + 1, runs);
+		return runs.toArray();
+	}
+
+	private void rasterize(MultiResolutionGeometry area, int firstColumn, int endColumn, int firstRow, int endRow, IntList runs)
+	{
+		Envelope block = new Envelope(firstColumn * this.resolution, endColumn * this.resolution,
+				firstRow * this.resolution, endRow * this.resolution);
+		// Slightly larger than the block, so that rounding errors in the cell coordinates can't
+		// leave a point in a cell outside of the rectangle
+		block.expandBy(this.resolution * 1e-6);
+		Geometry rectangle = this.geometryFactory.toGeometry(block);
+		if(!area.intersects(rectangle))
+		{
+			return;
+		}
+		if(area.covers(rectangle))
+		{
+			for(int row = firstRow; row < endRow; row++)
+			{
+				runs.add(row, firstColumn, endColumn, INSIDE);
+			}
+			return;
+		}
+		if(endColumn - firstColumn == 1 && endRow - firstRow == 1)
+		{
+			runs.add(firstRow, firstColumn, endColumn, BOUNDARY);
+			return;
+		}
+		int middleColumn = endColumn - firstColumn > 1 ? firstColumn + (endColumn - firstColumn) / 2 : endColumn;
+		int middleRow = endRow - firstRow > 1 ? firstRow + (endRow - firstRow) / 2 : endRow;
+		this.rasterize(area, firstColumn, middleColumn, firstRow, middleRow, runs);
+		if(middleColumn < endColumn)
+		{
+			this.rasterize(area, middleColumn, endColumn, firstRow, middleRow, runs);
+		}
+		if(middleRow < endRow)
+		{
+			this.rasterize(area, firstColumn, middleColumn, middleRow, endRow, runs);
+			if(middleColumn < endColumn)
+			{
+				this.rasterize(area, middleColumn, endColumn, middleRow, endRow, runs);
+			}
+		}
+	}
+
+	/**
+	 * Growable int array for the runs
+	 */
+	private static class IntList {
+		private int[] values = new int[64];
+		private int size = 0;
+
+		void add(int row, int firstColumn, int endColumn, int kind)
+		{
+			if(this.size + 4 > this.values.length)
+			{
+				this.values = Arrays.copyOf(this.values, this.values.length * 2);
+			}
+			this.values[this.size++] = row;
+			this.values[this.size++] = firstColumn;
+			this.values[this.size++] = endColumn;
+			this.values[this.size++] = kind;
+		}
+
+		int[] toArray()
+		{
+			return Arrays.copyOf(this.values, this.size);
+		}
+	}
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import net.ipmdecisions.dssservice.util.CountryBoundaryStore;
+import net.ipmdecisions.dssservice.util.MultiResolutionGeometry;
+
+/**
+ * Hierarchical cell index over the validity areas of the models. The world is divided into
+ * 2^level x 2^level cells at each level (like a quadtree or geohash). Each model's area is covered
+ * by the largest cells that are completely inside it (interior cells), and by cells at the
+ * deepest level along its boundary. The cells are in a hash map by cell id.
+ *
+ * A point, or a geometry that fits in one cell, is then mostly matched by looking up the cells
+ * that contain it, one per level. Only boundary cells need exact tests.
+ *
+ * The index is turned on by setting net.ipmdecisions.dssservice.COVERAGE_CELL_INDEX_LEVEL to the deepest
+ * level (e.g. 13, which gives cells of about 0.04 degrees, at most 20). The number of boundary cells doubles
+ * with each level, so the total number of cells in the covers is limited by
+ * net.ipmdecisions.dssservice.COVERAGE_CELL_INDEX_MAX_CELLS (default 10000000). The cell covers of the models are saved
+ * next to the catalog snapshot (see {@link DSSCatalogSnapshot}), so they don't have to be computed again
+ * at the next startup, as long as the country boundaries and the models' valid_spatial are the same.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class DSSModelCellIndex {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DSSModelCellIndex.class);
+
+	// Increase this when the cell ids or the content change
+	private static final int FORMAT_VERSION = 1;
+	private static final int MAX_LEVEL = 20;
+	private static final long MAX_CELLS = Long.parseLong(System.getProperty("net.ipmdecisions.dssservice.COVERAGE_CELL_INDEX_MAX_CELLS", "10000000"));
+
+	private static final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory())
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	/**
+	 * What is written to disk
+	 */
+	public static class Content {
+		private int formatVersion;
+		private int maxLevel;
+		private String boundarySource;
+		// The interior and boundary cell ids, by DSSModelValidity key
+		private Map<String, long[][]> coversByKey;
+
+		public int getFormatVersion() {
+			return formatVersion;
+		}
+
+		public void setFormatVersion(int formatVersion) {
+			this.formatVersion = formatVersion;
+		}
+
+		public int getMaxLevel() {
+			return maxLevel;
+		}
+
+		public void setMaxLevel(int maxLevel) {
+			this.maxLevel = maxLevel;
+		}
+
+		public String getBoundarySource() {
+			return boundarySource;
+		}
+
+		public void setBoundarySource(String boundarySource) {
+			this.boundarySource = boundarySource;
+		}
+
+		public Map<String, long[][]> getCoversByKey() {
+			return coversByKey;
+		}
+
+		public void setCoversByKey(Map<String, long[][]> coversByKey) {
+			this.coversByKey = coversByKey;
+		}
+	}
+
+	// From the previous build, for reuse
+	private static Content previous;
+
+	private final GeometryFactory geometryFactory = new GeometryFactory();
+	private final int maxLevel;
+	private final Map<Long, DSSModelPointCache.Cell> cells = new HashMap<>();
+	// The number of cells in the covers so far
+	private long cellCount = 0;
+
+	/**
+	 * @return the configured deepest level, or 0 if the cell index is turned off
+	 */
+	static int getConfiguredMaxLevel()
+	{
+		String level = System.getProperty("net.ipmdecisions.dssservice.COVERAGE_CELL_INDEX_LEVEL", "");
+		if(level.isBlank())
+		{
+			return 0;
+		}
+		try
+		{
+			int retVal = Integer.parseInt(level.trim());
+			if(retVal > MAX_LEVEL)
+			{
+				LOGGER.warn("COVERAGE_CELL_INDEX_LEVEL is " + retVal + ". Using the maximum level, " + MAX_LEVEL + ", instead");
+				return MAX_LEVEL;
+			}
+			return Math.max(0, retVal);
+		}
+		catch(NumberFormatException ex)
+		{
+			LOGGER.error("Could not read COVERAGE_CELL_INDEX_LEVEL (" + level + "). The cell index is turned off");
+			return 0;
+		}
+	}
+
+	/**
+	 * @return the file to save the cell covers in, or null if catalog snapshots are turned off
+	 */
+	static File getConfiguredFile()
+	{
+		DSSCatalogSnapshot snapshot = DSSCatalogSnapshot.getConfigured();
+		return snapshot != null ? new File(snapshot.getFile().getPath() + ".cells") : null;
+	}
+
+	/**
+	 * @param index the model index
+	 * @param validityAreas the validity area of each model ordinal (null for global models and models without an area)
+	 * @param countryBoundaries the country boundaries that the areas were made from
+	 * @param maxLevel the deepest level
+	 * @param file where the cell covers are saved. May be null
+	 * @throws IllegalArgumentException if the covers have more than {@link #MAX_CELLS} cells
+	 */
+	DSSModelCellIndex(DSSModelIndex index, MultiResolutionGeometry[] validityAreas, CountryBoundaryStore countryBoundaries, int maxLevel, File file)
+	{
+		long start = System.currentTimeMillis();
+		this.maxLevel = maxLevel;
+		// The covers can only be reused if they were made from the same country boundaries
+		String boundarySource = countryBoundaries.getSource();
+		Map<String, long[][]> reusableCovers = boundarySource != null ? getReusableCovers(maxLevel, boundarySource, file) : Map.of();
+
+		Map<String, long[][]> coversByKey = new HashMap<>();
+		Map<Long, BitSet> interiorModels = new HashMap<>();
+		Map<Long, List<Integer>> boundaryModels = new HashMap<>();
+		int computed = 0;
+		for(int ordinal = 0; ordinal < validityAreas.length; ordinal++)
+		{
+			if(validityAreas[ordinal] == null)
+			{
+				continue;
+			}
+			String key = index.getValidity(ordinal).getKey();
+			long[][] cover = coversByKey.get(key);
+			if(cover == null)
+			{
+				cover = reusableCovers.get(key);
+				if(cover == null)
+				{
+					cover = this.getCover(validityAreas[ordinal]);
+					computed++;
+				}
+				else
+				{
+					this.addCells(cover[0].length + cover[1].length);
+				}
+				coversByKey.put(key, cover);
+			}
+			for(long cellId:cover[0])
+			{
+				interiorModels.computeIfAbsent(cellId, k -> new BitSet()).set(ordinal);
+			}
+			for(long cellId:cover[1])
+			{
+				boundaryModels.computeIfAbsent(cellId, k -> new ArrayList<>()).add(ordinal);
+			}
+		}
+		for(Map.Entry<Long, BitSet> entry:interiorModels.entrySet())
+		{
+			List<Integer> boundary = boundaryModels.remove(entry.getKey());
+			this.cells.put(entry.getKey(), new DSSModelPointCache.Cell(entry.getValue(),
+					boundary != null ? boundary.stream().mapToInt(Integer::intValue).toArray() : new int[0]));
+		}
+		for(Map.Entry<Long, List<Integer>> entry:boundaryModels.entrySet())
+		{
+			this.cells.put(entry.getKey(), new DSSModelPointCache.Cell(new BitSet(), entry.getValue().stream().mapToInt(Integer::intValue).toArray()));
+		}
+
+		if(boundarySource != null)
+		{
+			Content content = new Content();
+			content.setFormatVersion(FORMAT_VERSION);
+			content.setMaxLevel(maxLevel);
+			content.setBoundarySource(boundarySource);
+			content.setCoversByKey(coversByKey);
+			synchronized(DSSModelCellIndex.class)
+			{
+				previous = content;
+			}
+			if(computed > 0 && file != null)
+			{
+				write(file, content);
+			}
+		}
+		LOGGER.info("Built the cell index (" + this.cells.size() + " cells, " + computed + " models covered) in "
+				+ (System.currentTimeMillis() - start) + " ms");
+	}
+
+	private static Map<String, long[][]> getReusableCovers(int maxLevel, String boundarySource, File file)
+	{
+		Content content;
+		synchronized(DSSModelCellIndex.class)
+		{
+			content = previous;
+		}
+		if(!isReusable(content, maxLevel, boundarySource) && file != null && file.isFile())
+		{
+			try
+			{
+				content = smileMapper.readValue(file, Content.class);
+			}
+			catch(IOException ex)
+			{
+				LOGGER.warn("Could not read the cell index file " + file.getPath() + ": " + ex.getMessage());
+			}
+		}
+		return isReusable(content, maxLevel, boundarySource) ? content.getCoversByKey() : Map.of();
+	}
+
+	private static boolean isReusable(Content content, int maxLevel, String boundarySource)
+	{
+		return content != null && content.getCoversByKey() != null && content.getFormatVersion() == FORMAT_VERSION
+				&& content.getMaxLevel() == maxLevel && boundarySource.equals(content.getBoundarySource());
+	}
+
+	/**
+	 * Counts cells against {@link #MAX_CELLS}, so that a deep level can't use up all the memory and CPU
+	 */
+	private void addCells(long count)
+	{
+		this.cellCount += count;
+		if(this.cellCount > MAX_CELLS)
+		{
+			throw new IllegalArgumentException("The cell index at level " + this.maxLevel + " has more than " + MAX_CELLS
+					+ " cells. Use a lower level");
+		}
+	}
+
+	private static void write(File file, Content content)
+	{
+		File tempFile = new File(file.getPath() + ".tmp");
+		try
+		{
+			smileMapper.writeValue(tempFile, content);
+			// Readers must never see a half written file
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(IOException ex)
+		{
+			LOGGER.warn("Could not write the cell index file " + file.getPath() + ": " + ex.getMessage());
+			tempFile.delete();
+		}
+	}
+
+	private static long getCellId(int level, int x, int y)
+	{
+		return ((long) level << 56) | ((long) x << 28) | y;
+	}
+
+	private int getX(double longitude)
+	{
+		int x = (int) Math.floor((longitude + 180.0) / (360.0 / (1 << this.maxLevel)));
+		return Math.max(0, Math.min((1 << this.maxLevel) - 1, x));
+	}
+
+	private int getY(double latitude)
+	{
+		int y = (int) Math.floor((latitude + 90.0) / (180.0 / (1 << this.maxLevel)));
+		return Math.max(0, Math.min((1 << this.maxLevel) - 1, y));
+	}
+
+	/**
+	 * @return the interior cell ids and the boundary cell ids
+	 */
+	private long[][] getCover(MultiResolutionGeometry area)
+	{
+		List<Long> interior = new ArrayList<>();
+		List<Long> boundary = new ArrayList<>();
+		this.cover(area, 0, 0, 0, interior, boundary);
+		return new long[][] {
+			interior.stream().mapToLong(Long::longValue).toArray(),
+			boundary.stream().mapToLong(Long::longValue).toArray()
+		};
+	}
+
+	private void cover(MultiResolutionGeometry area, int level, int x, int y, List<Long> interior, List<Long> boundary)
+	{
+		double width = 360.0 / (1 << level);
+		double height = 180.0 / (1 << level);
+		Envelope cell = new Envelope(x * width - 180.0, (x + 1) * width - 180.0, y * height - 90.0, (y + 1) * height - 90.0);
+		// Slightly larger than the cell, so that rounding errors can't leave a point in the cell outside of it
+		cell.expandBy(height * 1e-6);
+		if(!cell.intersects(area.getGeometry().getEnvelopeInternal()))
+		{
+			return;
+		}
+		org.locationtech.jts.geom.Geometry rectangle = this.geometryFactory.toGeometry(cell);
+		if(!area.intersects(rectangle))
+		{
+			return;
+		}
+		if(area.covers(rectangle))
+		{
+			this.addCells(1);
+			interior.add(getCellId(level, x, y));
+		}
+		else if(level == this.maxLevel)
+		{
+			this.addCells(1);
+			boundary.add(getCellId(level, x, y));
+		}
+		else
+		{
+			for(int child = 0; child < 4; child++)
+			{
+				this.cover(area, level + 1, 2 * x + (child & 1), 2 * y + (child >> 1), interior, boundary);
+			}
+		}
+	}
+
+	/**
+	 * @param envelope the envelope of a geometry
+	 * @return the models that are valid in all of a cell that contains the whole envelope. None for the
+	 * null envelope of an empty geometry
+	 */
+	BitSet getInteriorModels(Envelope envelope)
+	{
+		BitSet retVal = new BitSet();
+		if(envelope.isNull())
+		{
+			// Its min and max are 0 and -1, which would be taken for a point near (0, 0)
+			return retVal;
+		}
+		int minX = this.getX(envelope.getMinX());
+		int maxX = this.getX(envelope.getMaxX());
+		int minY = this.getY(envelope.getMinY());
+		int maxY = this.getY(envelope.getMaxY());
+		// The cells at each level are found from the deepest level, so that they are always
+		// parents of each other, regardless of rounding
+		for(int level = 0; level <= this.maxLevel; level++)
+		{
+			int shift = this.maxLevel - level;
+			if((minX >> shift) != (maxX >> shift) || (minY >> shift) != (maxY >> shift))
+			{
+				break;
+			}
+			DSSModelPointCache.Cell cell = this.cells.get(getCellId(level, minX >> shift, minY >> shift));
+			if(cell != null)
+			{
+				retVal.or(cell.insideModels);
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * @param longitude in decimal degrees (WGS84)
+	 * @param latitude in decimal degrees (WGS84)
+	 * @return the models that are valid in a cell containing the point, and the models that need an exact test
+	 */
+	DSSModelPointCache.Cell getCell(double longitude, double latitude)
+	{
+		int x = this.getX(longitude);
+		int y = this.getY(latitude);
+		BitSet insideModels = new BitSet();
+		for(int level = 0; level < this.maxLevel; level++)
+		{
+			DSSModelPointCache.Cell cell = this.cells.get(getCellId(level, x >> (this.maxLevel - level), y >> (this.maxLevel - level)));
+			if(cell != null)
+			{
+				insideModels.or(cell.insideModels);
+			}
+		}
+		// Boundary cells are only at the deepest level
+		DSSModelPointCache.Cell deepest = this.cells.get(getCellId(this.maxLevel, x, y));
+		if(deepest == null)
+		{
+			return new DSSModelPointCache.Cell(insideModels, new int[0]);
+		}
+		insideModels.or(deepest.insideModels);
+		return new DSSModelPointCache.Cell(insideModels, deepest.boundaryModels);
+	}
+}
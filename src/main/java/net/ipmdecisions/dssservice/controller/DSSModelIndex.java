@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.controller;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ipmdecisions.dssservice.entity.DSS;
+import net.ipmdecisions.dssservice.entity.DSSModel;
+
+/**
+ * Inverted indexes for the models in a {@link DSSCatalog}. Each model gets an ordinal
+ * (its position in the catalog, counting the models of each DSS in order), and the
+ * indexes map from e.g. an EPPO code to a {@link BitSet} of the ordinals of the models
+ * that use it. Queries are then done with BitSet AND/OR operations.
+ *
+ * All methods returning a BitSet return a new instance, which the caller is free to change.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class DSSModelIndex {
+
+	private final List<DSSModel> models = new ArrayList<>();
+	private final List<DSSModelValidity> validities = new ArrayList<>();
+	// The ordinal of the DSS (position in the catalog's DSS list) for each model ordinal
+	private final List<Integer> DSSOrdinals = new ArrayList<>();
+	// For each DSS ordinal: The ordinal of its first model. Has an extra element at the end
+	private final int[] firstModelOrdinals;
+	// DSS ordinals by DSS id, and model ordinals by DSS id and model id
+	private final Map<String, Integer> DSSOrdinalsById = new HashMap<>();
+	private final Map<String, Map<String, Integer>> modelOrdinalsById = new HashMap<>();
+
+	private final Map<String, BitSet> modelsByCrop = new HashMap<>();
+	private final Map<String, BitSet> modelsByPest = new HashMap<>();
+	private final Map<String, BitSet> modelsByExecutionType = new HashMap<>();
+	private final BitSet platformValidatedModels = new BitSet();
+	private final BitSet allModels = new BitSet();
+
+	DSSModelIndex(List<DSS> DSSList)
+	{
+		this.firstModelOrdinals = new int[DSSList.size() + 1];
+		for(int DSSOrdinal = 0; DSSOrdinal < DSSList.size(); DSSOrdinal++)
+		{
+			this.firstModelOrdinals[DSSOrdinal] = this.models.size();
+			DSS dss = DSSList.get(DSSOrdinal);
+			// If there are several versions of a DSS, the first one is used for lookups by id
+			boolean firstWithThisId = this.DSSOrdinalsById.putIfAbsent(dss.getId(), DSSOrdinal) == null;
+			if(dss.getModels() == null)
+			{
+				continue;
+			}
+			Map<String, Integer> modelOrdinals = firstWithThisId
+					? this.modelOrdinalsById.computeIfAbsent(dss.getId(), k -> new HashMap<>())
+					: new HashMap<>();
+			for(DSSModel model:dss.getModels())
+			{
+				int ordinal = this.models.size();
+				modelOrdinals.putIfAbsent(model.getId(), ordinal);
+				this.models.add(model);
+				this.validities.add(DSSModelValidity.parse(model.getValid_spatial()));
+				this.DSSOrdinals.add(DSSOrdinal);
+				this.allModels.set(ordinal);
+				if(model.getPlatform_validated())
+				{
+					this.platformValidatedModels.set(ordinal);
+				}
+				if(model.getExecution() != null && model.getExecution().getType() != null)
+				{
+					this.modelsByExecutionType.computeIfAbsent(model.getExecution().getType(), k -> new BitSet()).set(ordinal);
+				}
+				this.addAll(this.modelsByCrop, model.getCrops(), ordinal);
+				this.addAll(this.modelsByPest, model.getPests(), ordinal);
+			}
+		}
+		this.firstModelOrdinals[DSSList.size()] = this.models.size();
+	}
+
+	private void addAll(Map<String, BitSet> index, List<String> EPPOCodes, int ordinal)
+	{
+		if(EPPOCodes != null)
+		{
+			for(String EPPOCode:EPPOCodes)
+			{
+				index.computeIfAbsent(EPPOCode, k -> new BitSet()).set(ordinal);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of models in the catalog
+	 */
+	public int size()
+	{
+		return this.models.size();
+	}
+
+	/**
+	 * @param ordinal the model ordinal
+	 * @return the model (from the shared catalog. Read only!)
+	 */
+	public DSSModel getModel(int ordinal)
+	{
+		return this.models.get(ordinal);
+	}
+
+	/**
+	 * @param ordinal the model ordinal
+	 * @return the parsed valid_spatial of the model
+	 */
+	public DSSModelValidity getValidity(int ordinal)
+	{
+		return this.validities.get(ordinal);
+	}
+
+	/**
+	 * @param ordinal the model ordinal
+	 * @return the position in the catalog's DSS list of the DSS that the model belongs to
+	 */
+	public int getDSSOrdinal(int ordinal)
+	{
+		return this.DSSOrdinals.get(ordinal);
+	}
+
+	/**
+	 * @param DSSId the id of the DSS
+	 * @return the position in the catalog's DSS list of the DSS with this id, or null if not found
+	 */
+	public Integer getDSSOrdinal(String DSSId)
+	{
+		return this.DSSOrdinalsById.get(DSSId);
+	}
+
+	/**
+	 * @param DSSId the id of the DSS
+	 * @param modelId the id of the model
+	 * @return the ordinal of the model, or null if not found
+	 */
+	public Integer getModelOrdinal(String DSSId, String modelId)
+	{
+		Map<String, Integer> modelOrdinals = this.modelOrdinalsById.get(DSSId);
+		return modelOrdinals != null ? modelOrdinals.get(modelId) : null;
+	}
+
+	/**
+	 * @param DSSOrdinal position in the catalog's DSS list
+	 * @return the ordinal of the first model of the DSS. The models of the DSS are numbered
+	 * consecutively from here
+	 */
+	public int getFirstModelOrdinal(int DSSOrdinal)
+	{
+		return this.firstModelOrdinals[DSSOrdinal];
+	}
+
+	/**
+	 * @param DSSOrdinal position in the catalog's DSS list
+	 * @return the ordinals of all the models in the DSS
+	 */
+	public BitSet getModelsForDSS(int DSSOrdinal)
+	{
+		BitSet retVal = new BitSet();
+		retVal.set(this.firstModelOrdinals[DSSOrdinal], this.firstModelOrdinals[DSSOrdinal + 1]);
+		return retVal;
+	}
+
+	/**
+	 * @return all models in the catalog
+	 */
+	public BitSet getAllModels()
+	{
+		return (BitSet) this.allModels.clone();
+	}
+
+	/**
+	 * The standard filters that most endpoints accept
+	 * @param platformValidated if not null, only models with this validation status are included
+	 * @param executionType if a valid execution type (see DSSModel.Execution), only models of this type are included
+	 * @return the matching models
+	 */
+	public BitSet getModels(Boolean platformValidated, String executionType)
+	{
+		BitSet retVal = this.getAllModels();
+		if(platformValidated != null)
+		{
+			if(platformValidated)
+			{
+				retVal.and(this.platformValidatedModels);
+			}
+			else
+			{
+				retVal.andNot(this.platformValidatedModels);
+			}
+		}
+		if(executionType != null && DSSModel.Execution.isValidExecutionType(executionType))
+		{
+			retVal.and(this.getModelsForExecutionType(executionType));
+		}
+		return retVal;
+	}
+
+	/**
+	 * @param executionType e.g. ONTHEFLY or LINK
+	 * @return the models with the given execution type
+	 */
+	public BitSet getModelsForExecutionType(String executionType)
+	{
+		return this.get(this.modelsByExecutionType, executionType);
+	}
+
+	/**
+	 * @param cropCode EPPO code for the crop
+	 * @return the models that are applicable to the crop
+	 */
+	public BitSet getModelsForCrop(String cropCode)
+	{
+		return this.get(this.modelsByCrop, cropCode);
+	}
+
+	/**
+	 * @param cropCodes EPPO codes for the crops
+	 * @return the models that are applicable to at least one of the crops
+	 */
+	public BitSet getModelsForCrops(Collection<String> cropCodes)
+	{
+		BitSet retVal = new BitSet();
+		for(String cropCode:cropCodes)
+		{
+			BitSet models = this.modelsByCrop.get(cropCode);
+			if(models != null)
+			{
+				retVal.or(models);
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * @param pestCode EPPO code for the pest
+	 * @return the models that are applicable to the pest
+	 */
+	public BitSet getModelsForPest(String pestCode)
+	{
+		return this.get(this.modelsByPest, pestCode);
+	}
+
+	/**
+	 * @param models a selection of models
+	 * @return the EPPO codes of all crops that these models are applicable to
+	 */
+	public Set<String> getCrops(BitSet models)
+	{
+		return this.getKeys(this.modelsByCrop, models);
+	}
+
+	/**
+	 * @param models a selection of models
+	 * @return the EPPO codes of all pests that these models are applicable to
+	 */
+	public Set<String> getPests(BitSet models)
+	{
+		return this.getKeys(this.modelsByPest, models);
+	}
+
+	private BitSet get(Map<String, BitSet> index, String key)
+	{
+		BitSet models = index.get(key);
+		return models != null ? (BitSet) models.clone() : new BitSet();
+	}
+
+	private Set<String> getKeys(Map<String, BitSet> index, BitSet models)
+	{
+		Set<String> retVal = new HashSet<>();
+		for(Map.Entry<String, BitSet> entry:index.entrySet())
+		{
+			if(entry.getValue().intersects(models))
+			{
+				retVal.add(entry.getKey());
+			}
+		}
+		return retVal;
+	}
+}
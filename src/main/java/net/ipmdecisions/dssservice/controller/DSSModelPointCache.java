@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.controller;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache for point queries on a {@link DSSModelSpatialIndex}. The world is divided into square cells
+ * (net.ipmdecisions.dssservice.POINT_CACHE_CELL_SIZE degrees, default 0.01, at least 1e-7), and for each cell that
+ * has been queried we keep the models whose validity area covers the whole cell, and the models
+ * whose boundary crosses the cell. Only the latter need an exact test for each point, so
+ * the results are exactly the same as without the cache.
+ *
+ * The cache belongs to one spatial index, and thus to one catalog generation. The number of
+ * cells kept is limited by net.ipmdecisions.dssservice.POINT_CACHE_SIZE (default 10000).
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class DSSModelPointCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DSSModelPointCache.class);
+	private static final double DEFAULT_CELL_SIZE = 0.01;
+	// The cell's column and row must each fit in 32 bits of the key. Longitudes are within +/-180 (the
+	// services reject anything else), and 180 / 1e-7 is below 2^31
+	private static final double MIN_CELL_SIZE = 1e-7;
+	private static final double CELL_SIZE = getConfiguredCellSize();
+	private static final int MAX_SIZE = Integer.parseInt(System.getProperty("net.ipmdecisions.dssservice.POINT_CACHE_SIZE", "10000"));
+
+	/**
+	 * What we know about the models in a cell
+	 */
+	static class Cell {
+		// Models that are valid in all of the cell
+		final BitSet insideModels;
+		// Models that are valid in parts of the cell
+		final int[] boundaryModels;
+
+		Cell(BitSet insideModels, int[] boundaryModels)
+		{
+			this.insideModels = insideModels;
+			this.boundaryModels = boundaryModels;
+		}
+	}
+
+	private final DSSModelSpatialIndex spatialIndex;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final Map<Long, Cell> cells = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Cell> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	/**
+	 * @return the configured cell size in degrees. Values that can't be used are logged, and the default is used instead
+	 */
+	static double getConfiguredCellSize()
+	{
+		String cellSize = System.getProperty("net.ipmdecisions.dssservice.POINT_CACHE_CELL_SIZE", String.valueOf(DEFAULT_CELL_SIZE));
+		try
+		{
+			double retVal = Double.parseDouble(cellSize);
+			// The negated comparison also catches NaN
+			if(!(retVal >= MIN_CELL_SIZE) || Double.isInfinite(retVal))
+			{
+				LOGGER.error("POINT_CACHE_CELL_SIZE must be at least " + MIN_CELL_SIZE + " degrees, but is " + cellSize
+						+ ". Using " + DEFAULT_CELL_SIZE + " instead");
+				return DEFAULT_CELL_SIZE;
+			}
+			return retVal;
+		}
+		catch(NumberFormatException ex)
+		{
+			LOGGER.error("Could not read POINT_CACHE_CELL_SIZE (" + cellSize + "). Using " + DEFAULT_CELL_SIZE + " instead");
+			return DEFAULT_CELL_SIZE;
+		}
+	}
+
+	DSSModelPointCache(DSSModelSpatialIndex spatialIndex)
+	{
+		this.spatialIndex = spatialIndex;
+	}
+
+	/**
+	 * @param longitude in decimal degrees (WGS84)
+	 * @param latitude in decimal degrees (WGS84)
+	 * @return the ordinals of the models that are valid at the point
+	 */
+	public BitSet getModels(double longitude, double latitude)
+	{
+		long column = (long) Math.floor(longitude / CELL_SIZE);
+		long row = (long) Math.floor(latitude / CELL_SIZE);
+		Long key = (column << 32) | (row & 0xffffffffL);
+		Cell cell;
+		synchronized(this.cells)
+		{
+			cell = this.cells.get(key);
+		}
+		if(cell == null)
+		{
+			this.misses.incrementAndGet();
+			// Computed outside the lock. Two threads may compute the same cell, which is harmless
+			cell = this.spatialIndex.getCell(column * CELL_SIZE, row * CELL_SIZE, (column + 1) * CELL_SIZE, (row + 1) * CELL_SIZE);
+			synchronized(this.cells)
+			{
+				this.cells.put(key, cell);
+			}
+		}
+		else
+		{
+			this.hits.incrementAndGet();
+		}
+		BitSet retVal = (BitSet) cell.insideModels.clone();
+		for(int ordinal:cell.boundaryModels)
+		{
+			if(this.spatialIndex.isValidAt(ordinal, longitude, latitude))
+			{
+				retVal.set(ordinal);
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * @return the number of cells, hits, misses and the hit rate since the cache was created
+	 */
+	public Map<String, Object> getStatistics()
+	{
+		int size;
+		synchronized(this.cells)
+		{
+			size = this.cells.size();
+		}
+		long hitCount = this.hits.get();
+		long missCount = this.misses.get();
+		return Map.of(
+				"size", size,
+				"hits", hitCount,
+				"misses", missCount,
+				"hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount)
+		);
+	}
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.controller;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.TopologyException;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ipmdecisions.dssservice.util.CountryBoundaryStore;
+import net.ipmdecisions.dssservice.util.MultiResolutionGeometry;
+
+/**
+ * Spatial index over the areas where the models in a {@link DSSCatalog} are valid. Each model's
+ * validity area (see {@link DSSModelValidity#getArea}) is created when the index is built,
+ * and the areas are put into an {@link STRtree}. A location query then only has to do
+ * intersection tests ({@link MultiResolutionGeometry}) for the models whose bounding box matches.
+ *
+ * The model ordinals are the same as in {@link DSSModelIndex}.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class DSSModelSpatialIndex {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DSSModelSpatialIndex.class);
+	// The maximum total number of coordinates in the cached simplified areas
+	private static final long SIMPLIFIED_AREA_CACHE_POINTS = Long.parseLong(System.getProperty("net.ipmdecisions.dssservice.SIMPLIFIED_AREA_CACHE_POINTS", "5000000"));
+	// The detail levels that areas are simplified to: Tolerances from 2^-24 degrees (less than a centimetre,
+	// enough for the highest tile zoom level) to 4 degrees
+	private static final int MIN_DETAIL_EXPONENT = -24;
+	private static final int MAX_DETAIL_EXPONENT = 2;
+	// If simplifying removes less than this share of the coordinates, the full area is used instead
+	private static final double MIN_SIMPLIFICATION = 0.1;
+
+	private final GeometryFactory geometryFactory = new GeometryFactory();
+	private final STRtree tree = new STRtree();
+	// Models that are valid everywhere
+	private final BitSet globalModels = new BitSet();
+	private final MultiResolutionGeometry[] validityAreas;
+	private final DSSModelPointCache pointCache = new DSSModelPointCache(this);
+	// Null unless turned on
+	private final DSSCoverageRaster coverageRaster;
+	private final DSSModelCellIndex cellIndex;
+	// Simplified validity areas by ordinal and tolerance, with the total number of coordinates in them.
+	// The index is replaced with the catalog, so this is per catalog generation
+	private final Map<String, Geometry> simplifiedAreas = new LinkedHashMap<>(16, 0.75f, true);
+	private long simplifiedAreaPoints = 0;
+
+	DSSModelSpatialIndex(DSSModelIndex index, CountryBoundaryStore countryBoundaries)
+	{
+		long start = System.currentTimeMillis();
+		this.validityAreas = new MultiResolutionGeometry[index.size()];
+		for(int ordinal = 0; ordinal < index.size(); ordinal++)
+		{
+			DSSModelValidity validity = index.getValidity(ordinal);
+			if(validity.isGlobal())
+			{
+				this.globalModels.set(ordinal);
+				continue;
+			}
+			Geometry validityArea = validity.getArea(countryBoundaries);
+			if(validityArea != null && !validityArea.isEmpty())
+			{
+				this.validityAreas[ordinal] = new MultiResolutionGeometry(validityArea);
+				this.tree.insert(validityArea.getEnvelopeInternal(), ordinal);
+			}
+		}
+		double rasterResolution = DSSCoverageRaster.getConfiguredResolution();
+		DSSCoverageRaster raster = null;
+		if(rasterResolution > 0)
+		{
+			try
+			{
+				raster = new DSSCoverageRaster(index, this.validityAreas, rasterResolution);
+			}
+			catch(IllegalArgumentException ex)
+			{
+				LOGGER.error("Could not build the coverage raster. Using the point cache instead: " + ex.getMessage());
+			}
+		}
+		this.coverageRaster = raster;
+		int cellIndexLevel = DSSModelCellIndex.getConfiguredMaxLevel();
+		DSSModelCellIndex modelCellIndex = null;
+		if(cellIndexLevel > 0)
+		{
+			try
+			{
+				modelCellIndex = new DSSModelCellIndex(index, this.validityAreas, countryBoundaries, cellIndexLevel, DSSModelCellIndex.getConfiguredFile());
+			}
+			catch(IllegalArgumentException ex)
+			{
+				LOGGER.error("Could not build the cell index. Using the point cache instead: " + ex.getMessage());
+			}
+		}
+		this.cellIndex = modelCellIndex;
+		// After build(), the tree is read only, and can be queried from many threads at once
+		this.tree.build();
+		LOGGER.info("Built the spatial index for " + index.size() + " models in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * @param ordinal the model ordinal
+	 * @return the area where the model is valid, or null if it is valid everywhere or nowhere
+	 */
+	public Geometry getValidityArea(int ordinal)
+	{
+		return this.validityAreas[ordinal] != null ? this.validityAreas[ordinal].getGeometry() : null;
+	}
+
+	/**
+	 * Rounds a simplification tolerance down to one of a fixed set of detail levels (powers of two), so that
+	 * clients can't make us simplify and keep the same area for any number of tolerances
+	 * @param tolerance the requested tolerance in degrees
+	 * @return the tolerance of the detail level, or 0 (full resolution) if the tolerance is 0 or less
+	 */
+	public static double getDetailLevelTolerance(double tolerance)
+	{
+		if(tolerance <= 0)
+		{
+			return 0;
+		}
+		return Math.scalb(1.0, Math.max(MIN_DETAIL_EXPONENT, Math.min(MAX_DETAIL_EXPONENT, Math.getExponent(tolerance))));
+	}
+
+	/**
+	 * @param ordinal the model ordinal
+	 * @param tolerance the simplification tolerance in degrees. It's rounded with {@link #getDetailLevelTolerance(double)}.
+	 * See {@link TopologyPreservingSimplifier}
+	 * @return the area where the model is valid, simplified, or null if it is valid everywhere or nowhere
+	 */
+	public Geometry getValidityArea(int ordinal, double tolerance)
+	{
+		Geometry area = this.getValidityArea(ordinal);
+		double detailTolerance = getDetailLevelTolerance(tolerance);
+		if(area == null || detailTolerance == 0)
+		{
+			return area;
+		}
+		String key = ordinal + "|" + detailTolerance;
+		Geometry simplifiedArea;
+		synchronized(this.simplifiedAreas)
+		{
+			simplifiedArea = this.simplifiedAreas.get(key);
+		}
+		if(simplifiedArea == null)
+		{
+			// Two threads may simplify the same area at the same time. That's OK, the result is the same
+			simplifiedArea = TopologyPreservingSimplifier.simplify(area, detailTolerance);
+			if(simplifiedArea.getNumPoints() > area.getNumPoints() * (1 - MIN_SIMPLIFICATION))
+			{
+				// Not worth keeping a copy
+				simplifiedArea = area;
+			}
+			this.putSimplifiedArea(key, simplifiedArea, simplifiedArea != area ? simplifiedArea.getNumPoints() : 0);
+		}
+		return simplifiedArea;
+	}
+
+	/**
+	 * @param points the number of coordinates that the cache holds on to for the area. 0 if it's the full area
+	 */
+	private void putSimplifiedArea(String key, Geometry simplifiedArea, int points)
+	{
+		if(points > SIMPLIFIED_AREA_CACHE_POINTS)
+		{
+			return;
+		}
+		synchronized(this.simplifiedAreas)
+		{
+			if(this.simplifiedAreas.containsKey(key))
+			{
+				return;
+			}
+			this.simplifiedAreas.put(key, simplifiedArea);
+			this.simplifiedAreaPoints += points;
+			// Remove the least recently used areas until we're within the limit
+			Iterator<Map.Entry<String, Geometry>> entries = this.simplifiedAreas.entrySet().iterator();
+			while(this.simplifiedAreaPoints > SIMPLIFIED_AREA_CACHE_POINTS)
+			{
+				Map.Entry<String, Geometry> eldest = entries.next();
+				int ordinal = Integer.parseInt(eldest.getKey().substring(0, eldest.getKey().indexOf('|')));
+				if(eldest.getValue() != this.getValidityArea(ordinal))
+				{
+					this.simplifiedAreaPoints -= eldest.getValue().getNumPoints();
+				}
+				entries.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return true if the model is valid everywhere
+	 */
+	public boolean isGlobal(int ordinal)
+	{
+		return this.globalModels.get(ordinal);
+	}
+
+	/**
+	 * @param geometries the client's geometries
+	 * @return the ordinals of the models whose validity area intersects with at least one of the geometries
+	 */
+	public BitSet getModels(Collection<Geometry> geometries)
+	{
+		BitSet retVal = (BitSet) this.globalModels.clone();
+		for(Geometry geometry:geometries)
+		{
+			if(this.cellIndex != null)
+			{
+				// Models that are valid in all of a cell containing the geometry need no exact test
+				retVal.or(this.cellIndex.getInteriorModels(geometry.getEnvelopeInternal()));
+			}
+			for(Object candidate:this.tree.query(geometry.getEnvelopeInternal()))
+			{
+				int ordinal = (Integer) candidate;
+				if(!retVal.get(ordinal) && this.validityAreas[ordinal].intersects(geometry))
+				{
+					retVal.set(ordinal);
+				}
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * The same as {@link #getModels(Collection)}, for requests with many or large geometries (e.g. all the
+	 * fields of a farm). The geometries are unioned once, so that each candidate model is tested only once,
+	 * and the candidates are tested in parallel. The tests run in the ForkJoinPool that this is called from,
+	 * so call it from a bounded pool
+	 * @param geometries the client's geometries
+	 * @return the ordinals of the models whose validity area intersects with at least one of the geometries
+	 */
+	public BitSet getModelsInParallel(Collection<Geometry> geometries)
+	{
+		BitSet retVal = (BitSet) this.globalModels.clone();
+		if(geometries.isEmpty())
+		{
+			return retVal;
+		}
+		Geometry union;
+		try
+		{
+			union = OverlayNGRobust.union(geometries);
+		}
+		catch(TopologyException ex)
+		{
+			// E.g. badly self intersecting polygons. The tests still work on the collection
+			union = this.geometryFactory.buildGeometry(geometries);
+		}
+		// The candidates are found per geometry, since the envelope of the union may be much larger
+		BitSet candidates = new BitSet();
+		for(Geometry geometry:geometries)
+		{
+			if(this.cellIndex != null)
+			{
+				retVal.or(this.cellIndex.getInteriorModels(geometry.getEnvelopeInternal()));
+			}
+			this.tree.query(geometry.getEnvelopeInternal(), candidate -> candidates.set((Integer) candidate));
+		}
+		candidates.andNot(retVal);
+		Geometry clientArea = union;
+		// BitSet is not thread safe, so the matches are collected first
+		int[] matchingModels = candidates.stream().parallel()
+				.filter(ordinal -> this.validityAreas[ordinal].intersects(clientArea))
+				.toArray();
+		for(int ordinal:matchingModels)
+		{
+			retVal.set(ordinal);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Matches each of many separate locations (e.g. the fields of a farm) in parallel. Like
+	 * {@link #getModelsInParallel(Collection)}, the queries run in the ForkJoinPool that this is called from
+	 * @param geometries the client's geometries
+	 * @return for each geometry, in the same order: The same as {@link #getModels(Collection)} for that geometry alone
+	 */
+	public List<BitSet> getModelsForEach(List<Geometry> geometries)
+	{
+		return geometries.parallelStream()
+				.map(geometry -> this.getModels(List.of(geometry)))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * The same as {@link #getModels(Collection)} for a single point, but without any intermediate
+	 * collections or GeoJSON. The point is looked up in the {@link DSSCoverageRaster} or the {@link DSSModelCellIndex}
+	 * if one of them is turned on. Otherwise, repeated queries in the same area are answered from {@link DSSModelPointCache}
+	 * @param longitude in decimal degrees (WGS84)
+	 * @param latitude in decimal degrees (WGS84)
+	 * @return the ordinals of the models that are valid at the point
+	 */
+	public BitSet getModels(double longitude, double latitude)
+	{
+		DSSModelPointCache.Cell cell;
+		if(this.coverageRaster != null)
+		{
+			cell = this.coverageRaster.getCell(longitude, latitude);
+		}
+		else if(this.cellIndex != null)
+		{
+			cell = this.cellIndex.getCell(longitude, latitude);
+		}
+		else
+		{
+			return this.pointCache.getModels(longitude, latitude);
+		}
+		BitSet retVal = (BitSet) this.globalModels.clone();
+		retVal.or(cell.insideModels);
+		for(int ordinal:cell.boundaryModels)
+		{
+			if(this.isValidAt(ordinal, longitude, latitude))
+			{
+				retVal.set(ordinal);
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * @return the cache for point queries
+	 */
+	public DSSModelPointCache getPointCache()
+	{
+		return this.pointCache;
+	}
+
+	/**
+	 * @param ordinal the model ordinal
+	 * @param longitude in decimal degrees (WGS84)
+	 * @param latitude in decimal degrees (WGS84)
+	 * @return true if the model is valid at the point
+	 */
+	boolean isValidAt(int ordinal, double longitude, double latitude)
+	{
+		if(this.globalModels.get(ordinal))
+		{
+			return true;
+		}
+		return this.validityAreas[ordinal] != null
+				&& this.validityAreas[ordinal].intersects(this.geometryFactory.createPoint(new Coordinate(longitude, latitude)));
+	}
+
+	/**
+	 * Classifies the models for a rectangular cell
+	 * @return the models that are valid in all of the cell, and the models that are valid in parts of it
+	 */
+	DSSModelPointCache.Cell getCell(double minLongitude, double minLatitude, double maxLongitude, double maxLatitude)
+	{
+		// Slightly larger than the cell, so that rounding errors in the cell coordinates can't
+		// leave a point in the cell outside of the rectangle
+		Envelope envelope = new Envelope(minLongitude, maxLongitude, minLatitude, maxLatitude);
+		envelope.expandBy((maxLongitude - minLongitude) * 1e-6);
+		Geometry rectangle = this.geometryFactory.toGeometry(envelope);
+		BitSet insideModels = (BitSet) this.globalModels.clone();
+		List<Integer> boundaryModels = new ArrayList<>();
+		this.tree.query(envelope, candidate -> {
+			int ordinal = (Integer) candidate;
+			if(this.validityAreas[ordinal].covers(rectangle))
+			{
+				insideModels.set(ordinal);
+			}
+			else if(this.validityAreas[ordinal].intersects(rectangle))
+			{
+				boundaryModels.add(ordinal);
+			}
+		});
+		return new DSSModelPointCache.Cell(insideModels, boundaryModels.stream().mapToInt(Integer::intValue).toArray());
+	}
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.TopologyException;
+import org.locationtech.jts.geom.util.GeometryFixer;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wololo.geojson.Feature;
+import org.wololo.geojson.FeatureCollection;
+import org.wololo.geojson.GeoJSON;
+import org.wololo.geojson.GeoJSONFactory;
+import org.wololo.jts2geojson.GeoJSONReader;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.ipmdecisions.dssservice.entity.DSSModel;
+import net.ipmdecisions.dssservice.util.CountryBoundaryStore;
+
+/**
+ * The valid_spatial of a model, parsed once when the catalog is loaded. The model is either
+ * valid everywhere (the custom GeoJSON contains the "Sphere" type), or in the union of
+ * its countries and its custom geometry.
+ *
+ * The custom geometry is parsed here, but the country boundaries are only added by
+ * {@link #getArea(CountryBoundaryStore)}, since they are not necessarily available when the catalog is loaded.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class DSSModelValidity {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DSSModelValidity.class);
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+	// Simplification of the combined area, in degrees. 0 means no simplification
+	private static final double SIMPLIFY_TOLERANCE = Double.parseDouble(System.getProperty("net.ipmdecisions.dssservice.VALIDITY_AREA_SIMPLIFY_TOLERANCE", "0"));
+
+	private static final DSSModelValidity NOWHERE = new DSSModelValidity(false, Collections.emptySet(), null);
+
+	private final boolean global;
+	private final Set<String> countries;
+	private final Geometry customArea;
+
+	private DSSModelValidity(boolean global, Set<String> countries, Geometry customArea)
+	{
+		this.global = global;
+		this.countries = countries;
+		this.customArea = customArea;
+	}
+
+	/**
+	 * @param validSpatial the valid_spatial of a model. May be null
+	 * @return the parsed validity. Custom GeoJSON that can't be read is logged and ignored
+	 */
+	public static DSSModelValidity parse(DSSModel.Valid_Spatial validSpatial)
+	{
+		if(validSpatial == null)
+		{
+			return NOWHERE;
+		}
+		Set<String> countries = validSpatial.getCountries() == null ? Collections.emptySet()
+				: Collections.unmodifiableSet(new LinkedHashSet<>(List.of(validSpatial.getCountries())));
+		String geoJSON = validSpatial.getGeoJSON();
+		if(geoJSON == null || geoJSON.isBlank())
+		{
+			return new DSSModelValidity(false, countries, null);
+		}
+		try
+		{
+			JsonNode root = objectMapper.readTree(geoJSON);
+			if(root == null || root.isEmpty())
+			{
+				return new DSSModelValidity(false, countries, null);
+			}
+			// "Sphere" is not a GeoJSON type, it's our short form for a polygon that covers
+			// the entire globe. It can be used as the type of any geometry in the GeoJSON
+			for(JsonNode type:root.findValues("type"))
+			{
+				if("Sphere".equals(type.asText()))
+				{
+					return new DSSModelValidity(true, countries, null);
+				}
+			}
+			return new DSSModelValidity(false, countries, readGeometry(GeoJSONFactory.create(geoJSON)));
+		}
+		catch(JsonProcessingException | RuntimeException ex)
+		{
+			LOGGER.warn("Could not read valid_spatial.geoJSON: " + ex.getMessage());
+			return new DSSModelValidity(false, countries, null);
+		}
+	}
+
+	private static Geometry readGeometry(GeoJSON geoJSON)
+	{
+		GeoJSONReader reader = new GeoJSONReader();
+		List<Geometry> geometries = new ArrayList<>();
+		if(geoJSON instanceof FeatureCollection)
+		{
+			for(Feature feature:((FeatureCollection) geoJSON).getFeatures())
+			{
+				if(feature.getGeometry() != null)
+				{
+					geometries.add(reader.read(feature.getGeometry()));
+				}
+			}
+		}
+		else if(geoJSON instanceof Feature)
+		{
+			if(((Feature) geoJSON).getGeometry() != null)
+			{
+				geometries.add(reader.read(((Feature) geoJSON).getGeometry()));
+			}
+		}
+		else if(geoJSON instanceof org.wololo.geojson.Geometry)
+		{
+			geometries.add(reader.read((org.wololo.geojson.Geometry) geoJSON));
+		}
+		return geometries.isEmpty() ? null : new GeometryFactory().buildGeometry(geometries);
+	}
+
+	/**
+	 * @return true if the model is valid everywhere
+	 */
+	public boolean isGlobal()
+	{
+		return this.global;
+	}
+
+	/**
+	 * @return the ISO-3166-1 alpha-3 codes of the countries where the model is valid
+	 */
+	public Set<String> getCountries()
+	{
+		return this.countries;
+	}
+
+	/**
+	 * @return the custom geometry from valid_spatial.geoJSON, or null if there is none
+	 */
+	public Geometry getCustomArea()
+	{
+		return this.customArea;
+	}
+
+	/**
+	 * Creates the area where the model is valid. This is expensive, so the result should be kept
+	 * @param countryBoundaries the country boundaries
+	 * @return the union of the model's countries and custom geometry, or null if the model is global or has no area
+	 */
+	public Geometry getArea(CountryBoundaryStore countryBoundaries)
+	{
+		if(this.global)
+		{
+			return null;
+		}
+		List<Geometry> parts = new ArrayList<>();
+		for(String countryCode:this.countries)
+		{
+			Geometry countryBoundary = countryBoundaries.getGeometry(countryCode);
+			if(countryBoundary != null)
+			{
+				parts.add(countryBoundary);
+			}
+		}
+		if(this.customArea != null)
+		{
+			parts.add(this.customArea);
+		}
+		if(parts.isEmpty())
+		{
+			return null;
+		}
+		// Country boundaries are not always valid (e.g. self intersecting rings), and
+		// the union fails for invalid input. So we fix them first
+		List<Geometry> validParts = new ArrayList<>();
+		for(Geometry part:parts)
+		{
+			validParts.add(part.isValid() ? part : GeometryFixer.fix(part));
+		}
+		Geometry area;
+		try
+		{
+			area = OverlayNGRobust.union(validParts);
+		}
+		catch(TopologyException ex)
+		{
+			// Intersection tests still work without the union, but they are much slower
+			// on a geometry collection, since it can't be prepared
+			LOGGER.warn("Could not union the validity area: " + ex.getMessage());
+			area = new GeometryFactory().buildGeometry(validParts);
+		}
+		return SIMPLIFY_TOLERANCE > 0 ? TopologyPreservingSimplifier.simplify(area, SIMPLIFY_TOLERANCE) : area;
+	}
+
+	/**
+	 * @return identifies the countries and custom geometry of the validity. Unlike {@link #hashCode()},
+	 * it's the same across JVMs, and can be used as a key on disk
+	 */
+	public String getKey()
+	{
+		try
+		{
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			// The simplification changes the area, so it's part of the key
+			md.update((this.global + "|" + new TreeSet<>(this.countries) + "|" + SIMPLIFY_TOLERANCE + "|").getBytes(StandardCharsets.UTF_8));
+			if(this.customArea != null)
+			{
+				md.update(new WKBWriter().write(this.customArea));
+			}
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(md.digest());
+		}
+		catch(NoSuchAlgorithmException ex)
+		{
+			// All Java platforms are required to support SHA-256
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Two validities are equal if they have the same countries and the same custom geometry
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if(!(other instanceof DSSModelValidity))
+		{
+			return false;
+		}
+		DSSModelValidity otherValidity = (DSSModelValidity) other;
+		return this.global == otherValidity.global
+				&& this.countries.equals(otherValidity.countries)
+				&& Objects.equals(this.customArea, otherValidity.customArea);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(this.global, this.countries, this.customArea);
+	}
+}
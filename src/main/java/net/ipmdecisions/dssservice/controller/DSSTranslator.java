@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import net.ipmdecisions.dssservice.entity.DSS;
+import net.ipmdecisions.dssservice.entity.DSSModel;
+
+/**
+ * Translates DSSs into one language, using the resource bundles in the i18n folder of
+ * DSS_LIST_FILES_PATH. The bundles are loaded once per translator, so create one translator
+ * and use it for all the DSSs you need in that language.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class DSSTranslator implements AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DSSTranslator.class);
+
+	private static final ObjectMapper schemaMapper = new ObjectMapper();
+	private static final String BUNDLE_FILE_EXTENSION = ".properties";
+
+	private final String language;
+	private final URLClassLoader loader;
+
+	/**
+	 * @param language two-letter code for language. If null, "default" is used
+	 * @throws IOException if the i18n folder path is malformed
+	 */
+	public DSSTranslator(String language) throws IOException
+	{
+		this.language = language != null ? language : "default";
+		File file = new File(DSSCatalogLoader.getDSSListFilesPath() + "/" + DSSCatalogLoader.I18N_FOLDER);
+		URL[] urls = {file.toURI().toURL()};
+		// A new class loader means that ResourceBundle's own cache is bypassed, so
+		// changed translations are picked up each time a translator is created
+		this.loader = new URLClassLoader(urls);
+	}
+
+	/**
+	 * Finds the languages that there are translations for, from the names of the resource bundle
+	 * files in the i18n folder (e.g. no/nibio/vips_nb.properties for the DSS no.nibio.vips in Norwegian)
+	 * @param DSSIds the ids of the DSSs, which are the base names of the bundles
+	 * @return the two-letter language codes, in lower case. Empty if there are no translations
+	 */
+	public static Set<String> getAvailableLanguages(Collection<String> DSSIds)
+	{
+		Set<String> retVal = new HashSet<>();
+		File i18nFolder = new File(DSSCatalogLoader.getDSSListFilesPath() + "/" + DSSCatalogLoader.I18N_FOLDER);
+		for(String DSSId:DSSIds)
+		{
+			// Like ResourceBundle, the dots in the base name are folders
+			File baseFile = new File(i18nFolder, DSSId.replace('.', '/'));
+			String prefix = baseFile.getName() + "_";
+			File[] bundleFiles = baseFile.getParentFile().listFiles(file -> file.isFile()
+					&& file.getName().startsWith(prefix) && file.getName().endsWith(BUNDLE_FILE_EXTENSION));
+			if(bundleFiles == null)
+			{
+				continue;
+			}
+			for(File bundleFile:bundleFiles)
+			{
+				String localeSuffix = bundleFile.getName().substring(prefix.length(), bundleFile.getName().length() - BUNDLE_FILE_EXTENSION.length());
+				retVal.add(localeSuffix.split("_")[0].toLowerCase(Locale.ROOT));
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * Creates translated copies of the DSSs. The list has the same order, and each DSS
+	 * the same models in the same order, as the original list
+	 * @param DSSList the DSSs to translate. They are not changed
+	 * @return translated copies of the DSSs
+	 * @throws IOException
+	 */
+	public List<DSS> getTranslatedCopies(List<DSS> DSSList) throws IOException
+	{
+		List<DSS> retVal = new ArrayList<>(DSSList.size());
+		for(DSS dss:DSSList)
+		{
+			retVal.add(this.translate(DSSCatalog.copyOf(dss)));
+		}
+		return retVal;
+	}
+
+	/**
+	 * Translates the DSS in place. If there are no translations for this DSS, it is returned unchanged
+	 * @param dss the DSS to translate
+	 * @return the same DSS object
+	 */
+	public DSS translate(DSS dss)
+	{
+		ResourceBundle bundle;
+		try
+		{
+			bundle = ResourceBundle.getBundle(dss.getId(), new Locale(this.language), this.loader);
+		}
+		catch(MissingResourceException ex)
+		{
+			LOGGER.warn("WARNING [" + this.getClass().getName() + ".translate]: " + ex.getMessage());
+			return dss;
+		}
+
+		String basePath = dss.getId() + "." + dss.getVersion().replace(".","_");
+		LOGGER.debug("Translating metadata to " + this.language + ". DSS.name=" + dss.getName());
+		dss.setName(this.getString(bundle, basePath + ".name", dss.getName()));
+		// Listing the keys is costly, so we do it once per DSS, not once per model
+		List<String> bundleKeys = Collections.list(bundle.getKeys());
+		if(dss.getModels() == null)
+		{
+			return dss;
+		}
+		for(DSSModel model:dss.getModels())
+		{
+			String modelPath = basePath + ".models." + model.getId();
+			model.setName(this.getString(bundle, modelPath + ".name", model.getName()));
+			model.setDescription(this.getString(bundle, modelPath + ".description", model.getDescription()));
+			model.setPurpose(this.getString(bundle, modelPath + ".purpose", model.getPurpose()));
+			// LINK DSS lack some properties
+			if(model.getOutput() != null && ! model.getExecution().getType().equals(DSSModel.Execution.TYPE_LINK)) {
+				DSSModel.Output.WarningStatusInterpretation[] wsi = model.getOutput().getWarning_status_interpretation();
+				for (int i = 0; i < wsi.length; i++) {
+					String wsiPath = modelPath + ".output.warning_status_interpretation." + i;
+					wsi[i].setExplanation(this.getString(bundle, wsiPath + ".explanation", wsi[i].getExplanation()));
+					wsi[i].setRecommended_action(this.getString(bundle, wsiPath + ".recommended_action", wsi[i].getRecommended_action()));
+				}
+				model.getOutput().setChart_heading(this.getString(bundle, modelPath + ".output.chart_heading", model.getOutput().getChart_heading()));
+				for (DSSModel.Output.ChartGroup cg : model.getOutput().getChart_groups()) {
+					cg.setTitle(this.getString(bundle, modelPath + ".output.chart_groups." + cg.getId() + ".title", cg.getTitle()));
+				}
+				for (DSSModel.Output.ResultParameter rp : model.getOutput().getResult_parameters()) {
+					String rpPath = modelPath + ".output.result_parameters." + rp.getId();
+					rp.setTitle(this.getString(bundle, rpPath + ".title", rp.getTitle()));
+					rp.setDescription(this.getString(bundle, rpPath + ".description", rp.getDescription()));
+				}
+			}
+
+			if(model.getExecution() != null && model.getExecution().getInput_schema() != null)
+			{
+				String pathToInputSchema = modelPath + ".execution.input_schema.";
+				Map<JsonPointer, String> patches = new LinkedHashMap<>();
+				for(String key:bundleKeys)
+				{
+					String translation = key.startsWith(pathToInputSchema) ? this.getString(bundle, key, null) : null;
+					if(translation != null)
+					{
+						patches.put(toJsonPointer(key.substring(pathToInputSchema.length())), translation);
+					}
+				}
+				model.getExecution().setInput_schema(this.patchInputSchema(model.getExecution().getInput_schema(), patches));
+			}
+		}
+		return dss;
+	}
+
+	/**
+	 * Replaces the text of existing leaf values in the input schema. Paths that do not exist in the schema are ignored
+	 * @param inputSchema the input schema (JSON)
+	 * @param patches the new values, by their location in the schema
+	 * @return the patched schema, or the original string if nothing was changed
+	 */
+	private String patchInputSchema(String inputSchema, Map<JsonPointer, String> patches)
+	{
+		if(patches.isEmpty())
+		{
+			return inputSchema;
+		}
+		try
+		{
+			JsonNode schema = schemaMapper.readTree(inputSchema);
+			boolean changed = false;
+			for(Map.Entry<JsonPointer, String> patch:patches.entrySet())
+			{
+				if(patch.getKey().matches())
+				{
+					continue;
+				}
+				JsonNode target = schema.at(patch.getKey());
+				JsonNode parent = schema.at(patch.getKey().head());
+				if(!target.isValueNode())
+				{
+					continue;
+				}
+				if(parent.isObject())
+				{
+					((ObjectNode) parent).put(patch.getKey().last().getMatchingProperty(), patch.getValue());
+					changed = true;
+				}
+				else if(parent.isArray())
+				{
+					((ArrayNode) parent).set(patch.getKey().last().getMatchingIndex(), new TextNode(patch.getValue()));
+					changed = true;
+				}
+			}
+			return changed ? schemaMapper.writeValueAsString(schema) : inputSchema;
+		}
+		catch(JsonProcessingException ex)
+		{
+			LOGGER.warn("Could not translate input schema: " + ex.getMessage());
+			return inputSchema;
+		}
+	}
+
+	/**
+	 * Converts a path in the format used by JsonFlattener (e.g. <code>properties.fieldObservation.title</code>,
+	 * <code>required[0]</code> or <code>properties["a.b"]</code>) into a JSON pointer
+	 * @param flattenedPath the path
+	 * @return the corresponding JSON pointer
+	 */
+	static JsonPointer toJsonPointer(String flattenedPath)
+	{
+		StringBuilder pointer = new StringBuilder();
+		int i = 0;
+		while(i < flattenedPath.length())
+		{
+			char c = flattenedPath.charAt(i);
+			String segment;
+			if(c == '.')
+			{
+				i++;
+				continue;
+			}
+			else if(flattenedPath.startsWith("[\"", i))
+			{
+				int end = flattenedPath.indexOf("\"]", i + 2);
+				end = end < 0 ? flattenedPath.length() : end;
+				segment = flattenedPath.substring(i + 2, end).replace("\\\"", "\"");
+				i = end + 2;
+			}
+			else if(c == '[')
+			{
+				int end = flattenedPath.indexOf(']', i);
+				end = end < 0 ? flattenedPath.length() : end;
+				segment = flattenedPath.substring(i + 1, end);
+				i = end + 1;
+			}
+			else
+			{
+				int end = i;
+				while(end < flattenedPath.length() && flattenedPath.charAt(end) != '.' && flattenedPath.charAt(end) != '[')
+				{
+					end++;
+				}
+				segment = flattenedPath.substring(i, end);
+				i = end;
+			}
+			pointer.append('/').append(segment.replace("~", "~0").replace("/", "~1"));
+		}
+		return JsonPointer.compile(pointer.toString());
+	}
+
+	/**
+	 * @return the translation, or the default value if the key is missing or the translation is blank
+	 */
+	private String getString(ResourceBundle bundle, String key, String defaultValue)
+	{
+		// containsKey avoids the cost of throwing MissingResourceException for every missing key
+		if(!bundle.containsKey(key))
+		{
+			return defaultValue;
+		}
+		String value = bundle.getString(key);
+		return value.isBlank() ? defaultValue : value;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		this.loader.close();
+	}
+}
@@ -56,6 +56,26 @@ public class DSS {
         this.models = models;
     }
 
+    /**
+     * Creates a view of this DSS with a selection of its models. The properties and the
+     * models are shared with this DSS, not copied, so a filtered result can be created
+     * without touching the original.
+     * @param models the models to include in the view
+     * @return a new DSS with the same properties as this one, but with the given models
+     */
+    public DSS withModels(List<DSSModel> models) {
+        DSS view = new DSS();
+        view.models = models;
+        view.id = this.id;
+        view.version = this.version;
+        view.name = this.name;
+        view.url = this.url;
+        view.logo_url = this.logo_url;
+        view.languages = this.languages;
+        view.organization = this.organization;
+        return view;
+    }
+
     /**
      * @return A unique ID for the DSS. Preferably a reverse domain. E.g. no.nibio.vips
      */
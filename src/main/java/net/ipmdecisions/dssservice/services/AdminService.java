@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -64,6 +65,8 @@ import net.ipmdecisions.dssservice.entity.DSS;
 import net.ipmdecisions.dssservice.entity.DSSModel;
 import net.ipmdecisions.dssservice.entity.DSSModel.Output.WarningStatusInterpretation;
 import net.ipmdecisions.dssservice.util.MD5Encrypter;
+import net.ipmdecisions.dssservice.controller.DSSCatalog;
+import net.ipmdecisions.dssservice.controller.DSSModelSpatialIndex;
 import net.ipmdecisions.dssservice.controller.DSSController;
 
 
@@ -110,6 +113,34 @@ public class AdminService {
         return Response.ok().entity("Alive and well").build();
 	}
 	
+	/**
+	 * @return The generation of the DSS catalog currently in use, the number of DSSs in it,
+	 * the DSS files that could not be read (with the error messages), and the statistics of the point query cache.
+	 * The spatial index is not built by this, so the statistics are "Not built" until the first location query
+	 */
+	@GET
+	@Path("admin/catalog")
+	@Produces("application/json;charset=UTF-8")
+	public Response getCatalogStatus() {
+		if( !this.isAuthorized() ) { return this.unauthorizedResponse(); }
+		try
+		{
+			DSSCatalog catalog = DSSCatalog.getCurrent();
+			Map<String, Object> status = new LinkedHashMap<>();
+			status.put("generation", catalog.getGeneration());
+			status.put("numberOfDSSs", catalog.getDSSList().size());
+			status.put("loadErrors", catalog.getLoadErrors());
+			// Building the spatial index is expensive, so we don't do it just to report on it
+			DSSModelSpatialIndex spatialIndex = catalog.getSpatialIndexIfBuilt();
+			status.put("pointCache", spatialIndex != null ? spatialIndex.getPointCache().getStatistics() : "Not built");
+			return Response.ok().entity(status).build();
+		}
+		catch(IOException ex)
+		{
+			return Response.serverError().entity(ex.getMessage()).build();
+		}
+	}
+
 	/**
 	 * Add or update DSS meta data. Please remember to update any version info, as
 	 * A DSS with same id and version as an existing one will be rejected.
@@ -171,9 +202,11 @@ public class AdminService {
 					String path = System.getProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH") 
 							+ (System.getProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH").endsWith("/") ? "" : "/");
 					yamlMapper.writeValue(
-							new File(path + this.DSSController.getDSSFileName(DSSToAdd) + ".yaml") , 
+							new File(path + this.DSSController.getDSSFileName(DSSToAdd) + ".yaml") ,
 							DSSToAdd
 							);
+					// Swap in a new catalog, so that the change is visible to all readers
+					DSSCatalog.reload();
 				}
 				else
 				{
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.services;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.ipmdecisions.dssservice.controller.DSSCatalog;
+
+/**
+ * Serialized response bodies for endpoints that only depend on the DSS catalog. The bodies
+ * are kept until a new catalog generation is published, so Jackson only serializes each
+ * (endpoint, parameters, language) once per generation. Each body has a strong ETag (a hash of
+ * the content), so clients that send If-None-Match get 304 Not Modified without a body.
+ *
+ * The number of bodies kept is limited by net.ipmdecisions.dssservice.RESPONSE_CACHE_SIZE (default 500), and their
+ * total size by net.ipmdecisions.dssservice.RESPONSE_CACHE_MAX_BYTES (default 100 MB). Bodies larger than that
+ * are not kept at all.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class CatalogResponseCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CatalogResponseCache.class);
+
+	/**
+	 * Creates the entity to serialize, if it's not in the cache
+	 */
+	public interface EntitySupplier {
+		Object get() throws IOException;
+	}
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+	private static final long MAX_SIZE = getConfiguredLimit("RESPONSE_CACHE_SIZE", 500);
+	private static final long MAX_BYTES = getConfiguredLimit("RESPONSE_CACHE_MAX_BYTES", 104857600);
+
+	private static long generation = -1;
+	private static final Map<List<?>, SerializedBody> bodies = new LinkedHashMap<>(16, 0.75f, true);
+	// The total size of the bodies
+	private static long bytes = 0;
+
+	private static class SerializedBody {
+		private final byte[] body;
+		private final EntityTag entityTag;
+
+		SerializedBody(byte[] body)
+		{
+			this.body = body;
+			this.entityTag = new EntityTag(getHash(body));
+		}
+	}
+
+	/**
+	 * Reads a cache limit (a number of entries or bytes) from the system property net.ipmdecisions.dssservice.[name]
+	 * @param name the name of the property, without the net.ipmdecisions.dssservice. prefix
+	 * @param defaultValue used if the property is not set, or is not a number of zero or more
+	 * @return the limit
+	 */
+	static long getConfiguredLimit(String name, long defaultValue)
+	{
+		String limit = System.getProperty("net.ipmdecisions.dssservice." + name, String.valueOf(defaultValue));
+		try
+		{
+			long retVal = Long.parseLong(limit);
+			if(retVal < 0)
+			{
+				LOGGER.error(name + " must be zero or more, but is " + limit + ". Using " + defaultValue + " instead");
+				return defaultValue;
+			}
+			return retVal;
+		}
+		catch(NumberFormatException ex)
+		{
+			LOGGER.error("Could not read " + name + " (" + limit + "). Using " + defaultValue + " instead");
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @param request the current request, for evaluating If-None-Match
+	 * @param catalog the catalog that the entity is created from
+	 * @param key the name of the endpoint, followed by all the parameters that affect the response. The parts
+	 * are compared one by one, so parameter values can't be combined into another request's key. Parameters may be null
+	 * @param entitySupplier creates the entity if the body is not cached
+	 * @return 304 Not Modified if the client has the current version, otherwise 200 OK with the serialized (JSON) body
+	 * @throws IOException
+	 */
+	public static Response getResponse(Request request, DSSCatalog catalog, List<?> key, EntitySupplier entitySupplier) throws IOException
+	{
+		SerializedBody serializedBody = get(catalog.getGeneration(), key);
+		if(serializedBody == null)
+		{
+			serializedBody = new SerializedBody(objectMapper.writeValueAsBytes(entitySupplier.get()));
+			put(catalog.getGeneration(), key, serializedBody);
+		}
+		Response.ResponseBuilder notModified = request.evaluatePreconditions(serializedBody.entityTag);
+		if(notModified != null)
+		{
+			return notModified.tag(serializedBody.entityTag).build();
+		}
+		return Response.ok().entity(serializedBody.body).tag(serializedBody.entityTag).build();
+	}
+
+	private static synchronized SerializedBody get(long catalogGeneration, List<?> key)
+	{
+		return catalogGeneration == generation ? bodies.get(key) : null;
+	}
+
+	private static synchronized void put(long catalogGeneration, List<?> key, SerializedBody serializedBody)
+	{
+		if(catalogGeneration > generation)
+		{
+			// A new catalog generation: Everything we have is outdated
+			bodies.clear();
+			bytes = 0;
+			generation = catalogGeneration;
+		}
+		if(catalogGeneration != generation || serializedBody.body.length > MAX_BYTES)
+		{
+			return;
+		}
+		SerializedBody previous = bodies.put(key, serializedBody);
+		bytes += serializedBody.body.length - (previous != null ? previous.body.length : 0);
+		// Remove the least recently used bodies until we're within the limits. The new body is the last one
+		Iterator<SerializedBody> eldest = bodies.values().iterator();
+		while(bodies.size() > MAX_SIZE || bytes > MAX_BYTES)
+		{
+			bytes -= eldest.next().body.length;
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * @return a URL and file name safe SHA-256 hash of the bytes
+	 */
+	static String getHash(byte[] body)
+	{
+		try
+		{
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(md.digest(body));
+		}
+		catch(NoSuchAlgorithmException ex)
+		{
+			// All Java platforms are required to support SHA-256
+			throw new IllegalStateException(ex);
+		}
+	}
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.ipmdecisions.dssservice.controller.DSSCatalog;
+
+/**
+ * Vector tiles for the coverage layers, kept until a new catalog generation is published. The most
+ * recently used tiles are kept in memory (net.ipmdecisions.dssservice.COVERAGE_TILE_CACHE_SIZE, default 1000,
+ * and at most net.ipmdecisions.dssservice.COVERAGE_TILE_CACHE_MAX_BYTES, default 100 MB), and more of them on disk (net.ipmdecisions.dssservice.COVERAGE_TILE_DISK_CACHE_SIZE, default 100000) in
+ * net.ipmdecisions.dssservice.COVERAGE_TILE_CACHE_DIR (default: coverage_tiles in java.io.tmpdir). Set the
+ * directory to an empty string to keep the tiles in memory only.
+ *
+ * The generation counter starts again when the service restarts, so the tiles on disk are in a
+ * directory per service instance and generation. While an instance serves tiles, it touches its current
+ * directory every hour, also when the tiles come from memory. This instance's outdated directories, and directories
+ * that other instances have not touched for a day, are deleted in the background. Nothing else in the directory is deleted.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class CoverageTileCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CoverageTileCache.class);
+
+	/**
+	 * Creates the tile, if it's not in the cache
+	 */
+	public interface TileSupplier {
+		byte[] get() throws IOException;
+	}
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+	private static final long MAX_SIZE = CatalogResponseCache.getConfiguredLimit("COVERAGE_TILE_CACHE_SIZE", 1000);
+	private static final long MAX_BYTES = CatalogResponseCache.getConfiguredLimit("COVERAGE_TILE_CACHE_MAX_BYTES", 104857600);
+	private static final long MAX_DISK_SIZE = CatalogResponseCache.getConfiguredLimit("COVERAGE_TILE_DISK_CACHE_SIZE", 100000);
+	static final String INSTANCE_ID = UUID.randomUUID().toString();
+	// <instance id>-<generation>. Only directories with such names were created here
+	private static final Pattern TILE_DIRECTORY_NAME = Pattern.compile("([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})-[0-9]+");
+	// Tile directories of other instances that are not touched for this long are assumed to be abandoned
+	private static final long ABANDONED_DIRECTORY_AGE_MILLIS = 24 * 60 * 60 * 1000L;
+	// How often an instance that serves tiles touches its current directory. Well below ABANDONED_DIRECTORY_AGE_MILLIS
+	private static final long HEARTBEAT_INTERVAL_MILLIS = 60 * 60 * 1000L;
+
+	private static long generation = -1;
+	private static long lastHeartbeat = 0;
+	// Null if the disk cache is turned off
+	private static File directory;
+	private static final Map<List<?>, byte[]> tiles = new LinkedHashMap<>(16, 0.75f, true);
+	// The total size of the tiles in memory
+	private static long bytes = 0;
+	private static final Map<List<?>, File> files = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<?>, File> eldest) {
+			if(size() > MAX_DISK_SIZE)
+			{
+				eldest.getValue().delete();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/**
+	 * @return the directory for COVERAGE_TILE_CACHE_DIR, or null if it's turned off
+	 */
+	static File getConfiguredDirectory()
+	{
+		String path = System.getProperty("net.ipmdecisions.dssservice.COVERAGE_TILE_CACHE_DIR",
+				new File(System.getProperty("java.io.tmpdir"), "coverage_tiles").getPath());
+		return path.isBlank() ? null : new File(path);
+	}
+
+	/**
+	 * @param request the current request, for evaluating If-None-Match
+	 * @param catalog the catalog that the tile is created from
+	 * @param key identifies the tile and all the parameters that affect it. The parts are compared one by one.
+	 * Parameters may be null
+	 * @param tileSupplier creates the tile if it's not cached
+	 * @return 304 Not Modified if the client has the current version, otherwise 200 OK with the tile
+	 * @throws IOException
+	 */
+	public static Response getResponse(Request request, DSSCatalog catalog, List<?> key, TileSupplier tileSupplier) throws IOException
+	{
+		byte[] tile = get(catalog.getGeneration(), key);
+		if(tile == null)
+		{
+			tile = tileSupplier.get();
+			put(catalog.getGeneration(), key, tile);
+		}
+		heartbeat();
+		EntityTag entityTag = new EntityTag(CatalogResponseCache.getHash(tile));
+		Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+		if(notModified != null)
+		{
+			return notModified.tag(entityTag).build();
+		}
+		return Response.ok().entity(tile).tag(entityTag).build();
+	}
+
+	/**
+	 * Touches the current tile directory, so that other instances sharing the directory
+	 * don't take it for abandoned. Done at most every {@link #HEARTBEAT_INTERVAL_MILLIS}
+	 */
+	private static void heartbeat()
+	{
+		long now = System.currentTimeMillis();
+		File currentDirectory;
+		synchronized(CoverageTileCache.class)
+		{
+			if(directory == null || now - lastHeartbeat < HEARTBEAT_INTERVAL_MILLIS)
+			{
+				return;
+			}
+			lastHeartbeat = now;
+			currentDirectory = new File(directory, INSTANCE_ID + "-" + generation);
+		}
+		// Does nothing if no tile has been written yet. Writing one creates the directory
+		currentDirectory.setLastModified(now);
+	}
+
+	private static byte[] get(long catalogGeneration, List<?> key)
+	{
+		File file;
+		synchronized(CoverageTileCache.class)
+		{
+			if(catalogGeneration != generation)
+			{
+				return null;
+			}
+			byte[] tile = tiles.get(key);
+			if(tile != null)
+			{
+				return tile;
+			}
+			file = files.get(key);
+		}
+		if(file == null)
+		{
+			return null;
+		}
+		try
+		{
+			byte[] tile = Files.readAllBytes(file.toPath());
+			synchronized(CoverageTileCache.class)
+			{
+				if(catalogGeneration == generation)
+				{
+					putInMemory(key, tile);
+				}
+			}
+			return tile;
+		}
+		catch(IOException ex)
+		{
+			// E.g. deleted by a new generation in the meantime
+			return null;
+		}
+	}
+
+	private static void put(long catalogGeneration, List<?> key, byte[] tile)
+	{
+		File generationDirectory;
+		synchronized(CoverageTileCache.class)
+		{
+			if(catalogGeneration > generation)
+			{
+				// A new catalog generation: Everything we have is outdated
+				tiles.clear();
+				bytes = 0;
+				files.clear();
+				generation = catalogGeneration;
+				directory = getConfiguredDirectory();
+				if(directory != null)
+				{
+					deleteOutdatedDirectories(directory, new File(directory, INSTANCE_ID + "-" + generation));
+				}
+			}
+			if(catalogGeneration != generation)
+			{
+				return;
+			}
+			putInMemory(key, tile);
+			generationDirectory = directory != null ? new File(directory, INSTANCE_ID + "-" + generation) : null;
+		}
+		if(generationDirectory == null)
+		{
+			return;
+		}
+		File file = null;
+		File tempFile = null;
+		try
+		{
+			// The parts of the key are quoted in JSON, so different keys have different file names
+			file = new File(generationDirectory, CatalogResponseCache.getHash(objectMapper.writeValueAsBytes(key)) + ".mvt");
+			tempFile = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+			generationDirectory.mkdirs();
+			Files.write(tempFile.toPath(), tile);
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			synchronized(CoverageTileCache.class)
+			{
+				if(catalogGeneration == generation)
+				{
+					files.put(key, file);
+				}
+			}
+		}
+		catch(IOException ex)
+		{
+			LOGGER.warn("Could not write the tile to " + (file != null ? file.getPath() : generationDirectory.getPath()) + ": " + ex.getMessage());
+			if(tempFile != null)
+			{
+				tempFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Must be called while holding the lock on this class
+	 */
+	private static void putInMemory(List<?> key, byte[] tile)
+	{
+		if(tile.length > MAX_BYTES)
+		{
+			return;
+		}
+		byte[] previous = tiles.put(key, tile);
+		bytes += tile.length - (previous != null ? previous.length : 0);
+		// Remove the least recently used tiles until we're within the limits. The new tile is the last one
+		Iterator<byte[]> eldest = tiles.values().iterator();
+		while(tiles.size() > MAX_SIZE || bytes > MAX_BYTES)
+		{
+			bytes -= eldest.next().length;
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Deletes the tile directories of our own earlier generations, and of other instances that have not
+	 * touched them for {@link #ABANDONED_DIRECTORY_AGE_MILLIS} (e.g. from before a restart). Other instances
+	 * may share the directory, and touch their current one while they are running, so their tiles are left alone. Anything else in the directory is never touched
+	 * @return the thread that deletes the directories, or null if there is nothing to delete
+	 */
+	static Thread deleteOutdatedDirectories(File directory, File currentDirectory)
+	{
+		long now = System.currentTimeMillis();
+		File[] outdatedDirectories = directory.listFiles(file -> {
+			if(!file.isDirectory() || file.equals(currentDirectory))
+			{
+				return false;
+			}
+			Matcher matcher = TILE_DIRECTORY_NAME.matcher(file.getName());
+			return matcher.matches()
+					&& (matcher.group(1).equals(INSTANCE_ID) || now - file.lastModified() > ABANDONED_DIRECTORY_AGE_MILLIS);
+		});
+		if(outdatedDirectories == null || outdatedDirectories.length == 0)
+		{
+			return null;
+		}
+		Thread deleter = new Thread(() -> {
+			for(File outdatedDirectory:outdatedDirectories)
+			{
+				File[] outdatedFiles = outdatedDirectory.listFiles(file -> file.isFile()
+						&& (file.getName().endsWith(".mvt") || file.getName().endsWith(".tmp")));
+				if(outdatedFiles != null)
+				{
+					for(File outdatedFile:outdatedFiles)
+					{
+						outdatedFile.delete();
+					}
+				}
+				// Only succeeds if nothing else was put there
+				outdatedDirectory.delete();
+			}
+		}, "coverage-tile-cache-cleanup");
+		deleter.setDaemon(true);
+		deleter.start();
+		return deleter;
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.services;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ipmdecisions.dssservice.controller.DSSCatalog;
+import net.ipmdecisions.dssservice.controller.DSSCatalogLoader;
+import net.ipmdecisions.dssservice.controller.DSSCatalogWatcher;
+
+/**
+ * Loads the DSS catalog when the application is deployed, and keeps it up to date
+ * by watching the DSS_LIST_FILES_PATH folder. Set the system property
+ * net.ipmdecisions.dssservice.CATALOG_WATCH=false to turn off the watching.
+ *
+ * Also owns the thread pool for the location batch queries, which is shut down with the application.
+ * Its size is set by net.ipmdecisions.dssservice.LOCATION_BATCH_PARALLELISM (default: the number of processors).
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+@WebListener
+public class DSSCatalogListener implements ServletContextListener {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DSSCatalogListener.class);
+
+	private DSSCatalogWatcher watcher;
+	// Shared by all batch and multi geometry location requests, so that they can't take more than this many threads together
+	private static ForkJoinPool locationBatchPool;
+
+	/**
+	 * @return the pool for the location batch queries. Created on first use
+	 */
+	public static synchronized ForkJoinPool getLocationBatchPool()
+	{
+		if(locationBatchPool == null)
+		{
+			locationBatchPool = new ForkJoinPool(getConfiguredLocationBatchParallelism());
+		}
+		return locationBatchPool;
+	}
+
+	/**
+	 * @return the configured LOCATION_BATCH_PARALLELISM, or the number of processors if it's not a positive number
+	 */
+	static int getConfiguredLocationBatchParallelism()
+	{
+		int defaultParallelism = Runtime.getRuntime().availableProcessors();
+		String parallelism = System.getProperty("net.ipmdecisions.dssservice.LOCATION_BATCH_PARALLELISM", String.valueOf(defaultParallelism));
+		try
+		{
+			int retVal = Integer.parseInt(parallelism);
+			if(retVal <= 0)
+			{
+				LOGGER.error("LOCATION_BATCH_PARALLELISM must be a positive number, but is " + parallelism
+						+ ". Using " + defaultParallelism + " instead");
+				return defaultParallelism;
+			}
+			return retVal;
+		}
+		catch(NumberFormatException ex)
+		{
+			LOGGER.error("Could not read LOCATION_BATCH_PARALLELISM (" + parallelism + "). Using " + defaultParallelism + " instead");
+			return defaultParallelism;
+		}
+	}
+
+	@Override
+	public void contextInitialized(ServletContextEvent sce) {
+		String path = DSSCatalogLoader.getDSSListFilesPath();
+		if(path == null)
+		{
+			LOGGER.warn("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH is not set. The DSS catalog will not be available.");
+			return;
+		}
+		try
+		{
+			DSSCatalog.getCurrent();
+		}
+		catch(IOException ex)
+		{
+			LOGGER.error("Could not load the DSS catalog: " + ex.getMessage());
+		}
+		if(Boolean.parseBoolean(System.getProperty("net.ipmdecisions.dssservice.CATALOG_WATCH", "true")))
+		{
+			try
+			{
+				this.watcher = new DSSCatalogWatcher(path);
+				this.watcher.start();
+			}
+			catch(IOException ex)
+			{
+				LOGGER.error("Could not watch " + path + " for changes: " + ex.getMessage());
+			}
+		}
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent sce) {
+		if(this.watcher != null)
+		{
+			this.watcher.stop();
+		}
+		synchronized(DSSCatalogListener.class)
+		{
+			if(locationBatchPool != null)
+			{
+				locationBatchPool.shutdown();
+				locationBatchPool = null;
+			}
+		}
+	}
+}
@@ -25,27 +25,34 @@ import com.fasterxml.jackson.databind.node.JsonNodeType;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.webcohesion.enunciate.metadata.rs.TypeHint;
+import net.ipmdecisions.dssservice.controller.DSSCatalog;
 import net.ipmdecisions.dssservice.controller.DSSController;
+import net.ipmdecisions.dssservice.controller.DSSModelIndex;
+import net.ipmdecisions.dssservice.controller.DSSModelSpatialIndex;
 import net.ipmdecisions.dssservice.entity.DSS;
 import net.ipmdecisions.dssservice.entity.DSSModel;
-import net.ipmdecisions.dssservice.util.GISUtils;
+import net.ipmdecisions.dssservice.util.CountryBoundaryStore;
+import org.jboss.resteasy.annotations.GZIP;
+import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wololo.geojson.Feature;
 import org.wololo.geojson.FeatureCollection;
 import org.wololo.geojson.GeoJSONFactory;
-import org.wololo.geojson.Point;
 import org.wololo.jts2geojson.GeoJSONReader;
-import org.wololo.jts2geojson.GeoJSONWriter;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.FileNameMap;
 import java.net.URLConnection;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 /**
@@ -58,10 +65,19 @@ import java.util.stream.Collectors;
 public class DSSService {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(DSSService.class);
+	// Location queries with more points than this in total are rejected, so that one request can't take all the CPU
+	private static final int LOCATION_QUERY_MAX_POINTS = Integer.parseInt(System.getProperty("net.ipmdecisions.dssservice.LOCATION_QUERY_MAX_POINTS", "100000"));
+	// Deeper tiles are too small to be worth caching. The client can zoom the tiles at this level
+	private static final int COVERAGE_TILE_MAX_ZOOM = 20;
+	// Point queries slower than this are logged
+	private static final long POINT_QUERY_LATENCY_TARGET_MILLIS = Long.parseLong(System.getProperty("net.ipmdecisions.dssservice.POINT_QUERY_LATENCY_TARGET_MILLIS", "20"));
 	
 	// If this ever needs to be an EJB, simply annotate with @EJB
 	// and remove the init in the constructor for this class
 	private final DSSController DSSController;
+
+	@Context
+	private Request request;
 	
 	public DSSService() {
 		this.DSSController = new DSSController();
@@ -76,6 +92,7 @@ public class DSSService {
      */
     @GET
     @Path("dss")
+    @GZIP
     @Produces("application/json;charset=UTF-8")
     @TypeHint(DSS[].class)
     public Response listDSSs(
@@ -83,9 +100,10 @@ public class DSSService {
     		@QueryParam("executionType") String executionType
     		) {
         try {
-        	
-        	List<DSS> allDSSs = this.DSSController.getDSSListObj(null,language, executionType);
-            return Response.ok().entity(allDSSs).build();
+        	DSSCatalog catalog = DSSCatalog.getCurrent();
+            return CatalogResponseCache.getResponse(this.request, catalog, Arrays.asList("dss", catalog.getAvailableLanguage(language), executionType),
+                    () -> this.DSSController.getDSSListObj(catalog, catalog.getModelIndex().getModels(null, executionType), language, true)
+            );
         } catch (IOException ex) {
             return Response.serverError().entity(ex.getMessage()).build();
         }
@@ -166,6 +184,7 @@ public class DSSService {
      */
     @GET
     @Path("dss/platform_validated/{platformValidated}")
+    @GZIP
     @Produces("application/json;charset=UTF-8")
     @TypeHint(DSS[].class)
     public Response listDSSsByValidation(
@@ -174,8 +193,10 @@ public class DSSService {
     		@QueryParam("executionType") String executionType
     		) {
         try {
-        	List<DSS> allDSSs = this.DSSController.getDSSListObj(platformValidated, language, executionType);
-            return Response.ok().entity(allDSSs).build();
+        	DSSCatalog catalog = DSSCatalog.getCurrent();
+            return CatalogResponseCache.getResponse(this.request, catalog, Arrays.asList("dss/platform_validated", platformValidated, catalog.getAvailableLanguage(language), executionType),
+                    () -> this.DSSController.getDSSListObj(catalog, catalog.getModelIndex().getModels(platformValidated, executionType), language, true)
+            );
         } catch (IOException ex) {
             return Response.serverError().entity(ex.getMessage()).build();
         }
@@ -226,18 +247,10 @@ public class DSSService {
     		@QueryParam("executionType") String executionType
     		) {
         try {
-            List<DSS> retVal = new ArrayList<>();
-            List<DSS> allDSSs = this.DSSController.getDSSListObj(platformValidated, language, executionType);
-            for (DSS currentDSS : allDSSs) {
-                List<DSSModel> qualifyingModels
-                        = currentDSS.getModels().stream()
-                                .filter(model -> model.getCrops() != null && model.getCrops().contains(cropCode))
-                                .collect(Collectors.toList());
-                if (qualifyingModels.size() > 0) {
-                    currentDSS.setModels(qualifyingModels);
-                    retVal.add(currentDSS);
-                }
-            }
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            BitSet qualifyingModels = catalog.getModelIndex().getModels(platformValidated, executionType);
+            qualifyingModels.and(catalog.getModelIndex().getModelsForCrop(cropCode));
+            List<DSS> retVal = this.DSSController.getDSSListObj(catalog, qualifyingModels, language, false);
             return Response.ok().entity(retVal).build();
         } catch (IOException ex) {
             return Response.serverError().entity(ex.getMessage()).build();
@@ -289,30 +302,10 @@ public class DSSService {
     		) {
         try {
         	List<String> cropCodes = Arrays.asList(cropCodesStr.split(","));
-            List<DSS> retVal = new ArrayList<>();
-            List<DSS> allDSSs = this.DSSController.getDSSListObj(platformValidated, language, executionType);
-            for (DSS currentDSS : allDSSs) {
-                List<DSSModel> qualifyingModels
-                        = currentDSS.getModels().stream()
-                                .filter(model -> { 
-                                	if(model.getCrops() == null)
-                                	{
-                                		return false;
-                                	}
-                                	
-                                	List<String> intersection = model.getCrops().stream()
-                                			.distinct()
-                                			.filter(cropCodes::contains)
-                                			.collect(Collectors.toList());
-                                	return intersection.size() > 0;
-                                	}
-                                )
-                                .collect(Collectors.toList());
-                if (qualifyingModels.size() > 0) {
-                    currentDSS.setModels(qualifyingModels);
-                    retVal.add(currentDSS);
-                }
-            }
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            BitSet qualifyingModels = catalog.getModelIndex().getModels(platformValidated, executionType);
+            qualifyingModels.and(catalog.getModelIndex().getModelsForCrops(cropCodes));
+            List<DSS> retVal = this.DSSController.getDSSListObj(catalog, qualifyingModels, language, false);
             return Response.ok().entity(retVal).build();
         } catch (IOException ex) {
             return Response.serverError().entity(ex.getMessage()).build();
@@ -363,17 +356,10 @@ public class DSSService {
     		@QueryParam("executionType") String executionType
     		) {
         try {
-            List<DSS> retVal = new ArrayList<>();
-            this.DSSController.getDSSListObj(platformValidated, language, executionType).forEach((currentDSS) -> {
-                List<DSSModel> qualifyingModels
-                        = currentDSS.getModels().stream()
-                                .filter(model -> model.getPests() != null && model.getPests().contains(pestCode))
-                                .collect(Collectors.toList());
-                if (qualifyingModels.size() > 0) {
-                    currentDSS.setModels(qualifyingModels);
-                    retVal.add(currentDSS);
-                }
-            });
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            BitSet qualifyingModels = catalog.getModelIndex().getModels(platformValidated, executionType);
+            qualifyingModels.and(catalog.getModelIndex().getModelsForPest(pestCode));
+            List<DSS> retVal = this.DSSController.getDSSListObj(catalog, qualifyingModels, language, false);
             return Response.ok().entity(retVal).build();
         } catch (IOException ex) {
             return Response.serverError().entity(ex.getMessage()).build();
@@ -428,17 +414,11 @@ public class DSSService {
     		@QueryParam("executionType") String executionType
     		) {
         try {
-            List<DSS> retVal = new ArrayList<>();
-            this.DSSController.getDSSListObj(platformValidated, language, executionType).forEach((currentDSS) -> {
-                List<DSSModel> qualifyingModels
-                        = currentDSS.getModels().stream()
-                                .filter(model -> model.getPests() != null && model.getCrops() != null && model.getPests().contains(pestCode) && model.getCrops().contains(cropCode))
-                                .collect(Collectors.toList());
-                if (qualifyingModels.size() > 0) {
-                    currentDSS.setModels(qualifyingModels);
-                    retVal.add(currentDSS);
-                }
-            });
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            BitSet qualifyingModels = catalog.getModelIndex().getModels(platformValidated, executionType);
+            qualifyingModels.and(catalog.getModelIndex().getModelsForCrop(cropCode));
+            qualifyingModels.and(catalog.getModelIndex().getModelsForPest(pestCode));
+            List<DSS> retVal = this.DSSController.getDSSListObj(catalog, qualifyingModels, language, false);
             return Response.ok().entity(retVal).build();
         } catch (IOException ex) {
             return Response.serverError().entity(ex.getMessage()).build();
@@ -453,17 +433,16 @@ public class DSSService {
      */
     @GET
     @Path("pest")
+    @GZIP
     @Produces("application/json;charset=UTF-8")
     @TypeHint(String[].class)
     public Response getAllPests() {
         try {
-            Set<String> retVal = new HashSet<>();
-            for (DSS dss : this.DSSController.getDSSListObj(true)) {
-                dss.getModels().stream()
-                	.filter(model -> model.getPests() != null)
-                	.forEach(model -> retVal.addAll(model.getPests()));
-            }
-            return Response.ok().entity(retVal).build();
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            DSSModelIndex index = catalog.getModelIndex();
+            return CatalogResponseCache.getResponse(this.request, catalog, Arrays.asList("pest"),
+                    () -> index.getPests(index.getModels(true, null))
+            );
         } catch (IOException ex) {
             return Response.serverError().entity(ex.getMessage()).build();
         }
@@ -478,23 +457,22 @@ public class DSSService {
      */
     @GET
     @Path("crop/execution_type/{executionType}")
+    @GZIP
     @Produces("application/json;charset=UTF-8")
     @TypeHint(String[].class)
     public Response getAllCropsForDSSOfExecutionType(
             @PathParam("executionType") String executionType
     ) {
         try {
-            Set<String> retVal = new HashSet<>();
-            for (DSS dss : this.DSSController.getDSSListObj(true)) {
-                dss.getModels().stream()
-                        .filter(model -> model.getCrops() != null
-                                && model.getExecution() != null
-                                && model.getExecution().getType() != null
-                                && model.getExecution().getType().equals(executionType)
-                        )
-                        .forEach(model -> retVal.addAll(model.getCrops()));
-            }
-            return Response.ok().entity(retVal).build();
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            DSSModelIndex index = catalog.getModelIndex();
+            return CatalogResponseCache.getResponse(this.request, catalog, Arrays.asList("crop/execution_type", executionType),
+                    () -> {
+                        BitSet models = index.getModels(true, null);
+                        models.and(index.getModelsForExecutionType(executionType));
+                        return index.getCrops(models);
+                    }
+            );
         } catch (IOException ex) {
             return Response.serverError().entity(ex.getMessage()).build();
         }
@@ -527,19 +505,18 @@ public class DSSService {
      */
     @GET
     @Path("crop/platform_validated/{platformValidated}")
+    @GZIP
     @Produces("application/json;charset=UTF-8")
     @TypeHint(String[].class)
     public Response getAllCrops(
             @PathParam("platformValidated") Boolean platformValidated
     ) {
         try {
-        	Set<String> retVal = new HashSet<>();
-            for (DSS dss : this.DSSController.getDSSListObj(platformValidated)) {
-                dss.getModels().stream()
-            	.filter(model -> model.getCrops() != null)
-            	.forEach(model -> retVal.addAll(model.getCrops()));
-            }
-            return Response.ok().entity(retVal).build();
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            DSSModelIndex index = catalog.getModelIndex();
+            return CatalogResponseCache.getResponse(this.request, catalog, Arrays.asList("crop/platform_validated", platformValidated),
+                    () -> index.getCrops(index.getModels(platformValidated, null))
+            );
         } catch (IOException ex) {
             return Response.serverError().entity(ex.getMessage()).build();
         }
@@ -620,10 +597,10 @@ public class DSSService {
     		@QueryParam("executionType") String executionType
     		) {
         try {
-            Optional<DSS> matchingDSS = this.DSSController.getDSSListObj(null, language, executionType).stream().filter(dss -> dss.getId().equals(DSSId)).findFirst();
-            if (matchingDSS.isPresent()) {
+            DSS matchingDSS = this.DSSController.getDSSById(DSSId, null, language, executionType);
+            if (matchingDSS != null) {
             	ObjectMapper YAMLWriter = new ObjectMapper(new YAMLFactory());
-                return Response.ok().entity(YAMLWriter.writeValueAsString(matchingDSS.get())).build();
+                return Response.ok().entity(YAMLWriter.writeValueAsString(matchingDSS)).build();
             } else {
                 return Response.status(Response.Status.NOT_FOUND).entity(Map.of("errorMessage", "Could not find DSS with id " + DSSId)).build();
             }
@@ -655,12 +632,11 @@ public class DSSService {
     		@QueryParam("executionType") String executionType
     		) {
         try {
-            Optional<DSS> matchingDSS = this.DSSController.getDSSListObj(null, language, executionType).stream().filter(dss -> dss.getId().equals(DSSId)).findFirst();
-            if (matchingDSS.isPresent()) {
-                DSS actualDSS = matchingDSS.get();
-                Optional<DSSModel> matchingDSSModel = actualDSS.getModels().stream().filter(model -> model.getId().equals(ModelId)).findFirst();
-                if (matchingDSSModel.isPresent()) {
-                    return Response.ok().entity(matchingDSSModel.get()).build();
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            if (catalog.getModelIndex().getDSSOrdinal(DSSId) != null) {
+                DSSModel matchingDSSModel = this.DSSController.getDSSModel(catalog, DSSId, ModelId, language, executionType);
+                if (matchingDSSModel != null) {
+                    return Response.ok().entity(matchingDSSModel).build();
                 } else {
                     return Response.status(Response.Status.NOT_FOUND).entity(Map.of("errorMessage", "Could not find DSS Model with id " + ModelId + " in DSS with id " + DSSId)).build();
                 }
@@ -739,12 +715,11 @@ public class DSSService {
     		@QueryParam("executionType") String executionType
     		) {
         try {
-            Optional<DSS> matchingDSS = this.DSSController.getDSSListObj(null, language, executionType).stream().filter(dss -> dss.getId().equals(DSSId)).findFirst();
-            if (matchingDSS.isPresent()) {
-                DSS actualDSS = matchingDSS.get();
-                Optional<DSSModel> matchingDSSModel = actualDSS.getModels().stream().filter(model -> model.getId().equals(ModelId)).findFirst();
-                if (matchingDSSModel.isPresent()) {
-                    return Response.ok().entity(matchingDSSModel.get().getExecution().getInput_schema()).build();
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            if (catalog.getModelIndex().getDSSOrdinal(DSSId) != null) {
+                DSSModel matchingDSSModel = this.DSSController.getDSSModel(catalog, DSSId, ModelId, language, executionType);
+                if (matchingDSSModel != null) {
+                    return Response.ok().entity(matchingDSSModel.getExecution().getInput_schema()).build();
                 } else {
                     return Response.status(Response.Status.NOT_FOUND).entity(Map.of("errorMessage", "Could not find DSS Model with id " + ModelId + " in DSS with id " + DSSId)).build();
                 }
@@ -812,16 +787,15 @@ public class DSSService {
     		@QueryParam("executionType") String executionType
     		) {
         try {
-            Optional<DSS> matchingDSS = this.DSSController.getDSSListObj(null, language, executionType).stream().filter(dss -> dss.getId().equals(DSSId)).findFirst();
-            if (matchingDSS.isPresent()) {
-                DSS actualDSS = matchingDSS.get();
-                Optional<DSSModel> matchingDSSModel = actualDSS.getModels().stream().filter(model -> model.getId().equals(ModelId)).findFirst();
-                if (matchingDSSModel.isPresent()) {
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            if (catalog.getModelIndex().getDSSOrdinal(DSSId) != null) {
+                DSSModel matchingDSSModel = this.DSSController.getDSSModel(catalog, DSSId, ModelId, language, executionType);
+                if (matchingDSSModel != null) {
                 	ObjectMapper om = new ObjectMapper();
                     // Reading the input schema
-                	JsonNode inputSchema = om.readTree(matchingDSSModel.get().getExecution().getInput_schema());
+                	JsonNode inputSchema = om.readTree(matchingDSSModel.getExecution().getInput_schema());
                     // Which parameters should be hidden? Look in the "input_schema_categories.hidden" list
-                	String[] hideThese = matchingDSSModel.get().getExecution().getInput_schema_categories().getHidden();
+                	String[] hideThese = matchingDSSModel.getExecution().getInput_schema_categories().getHidden();
                 	// Loop the list of hidden parameters (if we find any), remove them from the Json node treee
                     if(hideThese != null)
                 	{
@@ -917,6 +891,9 @@ public class DSSService {
      *
      * </pre>
      *
+     * The geometries can have at most net.ipmdecisions.dssservice.LOCATION_QUERY_MAX_POINTS (default 100000) points
+     * in total. Larger requests get 413 Request Entity Too Large.
+     *
      * @param geoJson valid <a href="https://geojson.org/">GeoJSON</a>
      * @return A list of all the matching DSS models
      */
@@ -936,79 +913,30 @@ public class DSSService {
             GeoJSONReader reader = new GeoJSONReader();
             // Get all geometries in request
             List<Geometry> clientGeometries = new ArrayList<>();
+            int points = 0;
             for (Feature feature : clientFeatures.getFeatures()) {
                 Geometry geom = reader.read(feature.getGeometry());
                 clientGeometries.add(geom);
+                points += geom.getNumPoints();
             }
-            // Loop through all DSS models
-            // Return only data sources with geometries intersecting with the client's
-            // specified geometries
-            GISUtils gisUtils = new GISUtils();
-            
-            List<DSS> retVal = new ArrayList<>();
-            LOGGER.debug("platformValidated is " + platformValidated);
-            for (DSS dss : this.DSSController.getDSSListObj(platformValidated, language, executionType)) {
-
-                List<DSSModel> matchingModels = dss.getModels().stream()
-                        .filter(model -> {
-                            String modelGeoJsonStr = "";
-                            try
-                            {
-                                modelGeoJsonStr  = model.getValid_spatial().getGeoJSON();
-                            }
-                            catch(NullPointerException ex)
-                            {
-                                //return false; // We should pass, check for matching countries
-                            }
-                            // We do a brute force search for the string "Sphere" in the geoJSON string
-                            // to bypass any issues in deserialization of that custom type, which is 
-                            // short for creating a polygon that covers the entire globe
-                            if (modelGeoJsonStr.contains("\"Sphere\"")) {
-                                return true;
-                            }
-                             // Get all geometries in current model
-                            // Country boundaries 
-                            List<Feature> modelFeatures = Arrays.asList(gisUtils.getCountryBoundaries(new HashSet<>(Arrays.asList(
-                                    model.getValid_spatial().getCountries()
-                            ))).getFeatures());
-                            try
-                            {
-                                if(!modelGeoJsonStr.isBlank() && ! gisUtils.isGeoJsonStringEmpty(modelGeoJsonStr))
-                                {
-                                    modelFeatures.addAll(Arrays.asList(
-                                    		((FeatureCollection) GeoJSONFactory.create(modelGeoJsonStr)).getFeatures()
-                                    		));
-                                }
-                            }catch(RuntimeException ex) {LOGGER.debug(ex.getMessage());}
-                            
-                            // Match with all geometries in request. If found, add data source to
-                            // list of matching data sources
-                            List<Geometry> modelGeometries = modelFeatures.stream()
-                                    .map(f -> reader.read(f.getGeometry()))
-                                    .filter(modelGeometry -> {
-                                        boolean matching = false;
-                                        for (Geometry clientGeometry : clientGeometries) {
-                                            if (modelGeometry.intersects(clientGeometry)) {
-                                                matching = true;
-                                            }
-                                        }
-                                        return matching;
-                                    })
-                                    .collect(Collectors.toList());
-                            // The number of matching geometries for this weather data source
-                            // Used as filter criteria
-                            return modelGeometries.size() > 0;
-                        })
-                        .collect(Collectors.toList());
-                if(matchingModels.size() > 0)
-                {
-                    dss.setModels(matchingModels);
-                    retVal.add(dss);
-                }
-                
+            if (points > LOCATION_QUERY_MAX_POINTS) {
+                return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).entity(Map.of("errorMessage",
+                        "The geometries have " + points + " points. The maximum is " + LOCATION_QUERY_MAX_POINTS)).build();
             }
+            // Return only models with validity areas intersecting with the client's
+            // specified geometries
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            DSSModelSpatialIndex spatialIndex = catalog.getSpatialIndex();
+            BitSet matchingModels = catalog.getModelIndex().getModels(platformValidated, executionType);
+            matchingModels.and(DSSCatalogListener.getLocationBatchPool().submit(() -> spatialIndex.getModelsInParallel(clientGeometries)).get());
+            List<DSS> retVal = this.DSSController.getDSSListObj(catalog, matchingModels, language, false);
 
             return Response.ok().entity(retVal).build();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return Response.serverError().entity("Interrupted while matching the locations").build();
+        } catch (ExecutionException ex) {
+            return Response.serverError().entity("Error matching the locations: " + ex.getCause().getMessage()).build();
         } catch (IOException ex) {
             return Response.serverError().entity(ex.getMessage()).build();
         }
@@ -1033,17 +961,350 @@ public class DSSService {
             @QueryParam("language") String language
             )
     {
+        String coordinateError = getCoordinateError(latitude, longitude);
+        if(coordinateError != null)
+        {
+            return Response.status(Response.Status.BAD_REQUEST).entity(Map.of("errorMessage", coordinateError)).build();
+        }
+        try {
+            long start = System.nanoTime();
+            // Look up the point directly in the spatial index, without going through GeoJSON
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            BitSet matchingModels = catalog.getModelIndex().getModels(platformValidated, executionType);
+            matchingModels.and(catalog.getSpatialIndex().getModels(longitude, latitude));
+            List<DSS> retVal = this.DSSController.getDSSListObj(catalog, matchingModels, language, false);
+            long elapsedMillis = (System.nanoTime() - start) / 1000000;
+            if(elapsedMillis > POINT_QUERY_LATENCY_TARGET_MILLIS)
+            {
+                LOGGER.warn("Point query for (" + latitude + "," + longitude + ") took " + elapsedMillis
+                        + " ms. The target is " + POINT_QUERY_LATENCY_TARGET_MILLIS + " ms");
+            }
+            return Response.ok().entity(retVal).build();
+        } catch (IOException ex) {
+            return Response.serverError().entity(ex.getMessage()).build();
+        }
+    }
+
+    /**
+     * @param latitude in decimal degrees (WGS84)
+     * @param longitude in decimal degrees (WGS84)
+     * @return why the coordinates can't be used, or null if they are OK
+     */
+    static String getCoordinateError(Double latitude, Double longitude)
+    {
+        if(latitude == null || longitude == null)
+        {
+            return "Both latitude and longitude must be specified";
+        }
+        // The negated comparisons also catch NaN. The spatial index would otherwise
+        // put the point in the nearest cell at the edge of the world
+        if(!(latitude >= -90.0 && latitude <= 90.0) || !(longitude >= -180.0 && longitude <= 180.0))
+        {
+            return "The latitude must be between -90 and 90, and the longitude between -180 and 180";
+        }
+        return null;
+    }
+
+    /**
+     * Search for DSS models that have been validated for each of many locations, e.g. all the
+     * fields of a farm. The locations are matched in parallel.
+     * Example input
+     * <pre>
+     * {
+     "type": "FeatureCollection",
+     "features": [
+     {
+     "type": "Feature",
+     "id": "field-1",
+     "properties": {},
+     "geometry": {
+     "type": "Point",
+     "coordinates": [
+     12.01629638671875,
+     59.678835236960765
+     ]
+     }
+     }
+     ]
+     }
+     * </pre>
+     * Example output
+     * <pre>
+     * [
+     {
+     "id": "field-1",
+     "models": [
+     {"dss_id": "no.nibio.vips", "model_id": "PSILARTEMP"}
+     ]
+     }
+     ]
+     * </pre>
+     *
+     * @param geoJson a <a href="https://geojson.org/">GeoJSON</a> FeatureCollection. Each feature should have an id
+     * @return For each feature (in the same order as in the request): The feature id and the ids of the matching models
+     */
+    @POST
+    @Path("dss/location/batch")
+    @Consumes("application/json")
+    @Produces("application/json")
+    @GZIP
+    public Response listModelsForLocations(
+            String geoJson, // Sent as POST data (in the request body)
+            @QueryParam("platformValidated") Boolean platformValidated,
+            @QueryParam("executionType") String executionType
+            ) {
+        List<Feature> clientFeatures;
+        try {
+            // GeoJSONFactory wraps all parse errors in RuntimeException
+            clientFeatures = Arrays.asList(((FeatureCollection) GeoJSONFactory.create(geoJson)).getFeatures());
+        } catch (RuntimeException ex) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(Map.of("errorMessage", "Could not read the FeatureCollection: " + ex.getMessage())).build();
+        }
+        try {
+            return Response.ok().entity(this.getModelIdsForFeatures(clientFeatures, platformValidated, executionType)).build();
+        } catch (IOException ex) {
+            return Response.serverError().entity(ex.getMessage()).build();
+        }
+    }
 
-        // Generate GeoJSON for a point and call the general method
-        double[] coordinate = new double[2];
-        coordinate[0] = longitude;
-        coordinate[1] = latitude;
-        Point point = new Point(coordinate);
-        List<Feature> features = new ArrayList<>();
-        Map<String, Object> properties = new HashMap<>();
-        features.add(new Feature(point,properties));
-        GeoJSONWriter writer = new GeoJSONWriter();
-        return this.listModelsForLocation(writer.write(features).toString(), platformValidated, executionType, language);
+    /**
+     * The same as {@link #listModelsForLocations(String, Boolean, String)}, but with
+     * <a href="http://ndjson.org/">newline delimited</a> GeoJSON features as input. One feature per line.
+     * This is easier to produce for clients that stream the fields from a database
+     *
+     * @param ndjson GeoJSON features, one per line. Each feature should have an id
+     * @return For each feature (in the same order as in the request): The feature id and the ids of the matching models
+     */
+    @POST
+    @Path("dss/location/batch")
+    @Consumes("application/x-ndjson")
+    @Produces("application/json")
+    @GZIP
+    public Response listModelsForLocationsNDJSON(
+            String ndjson, // Sent as POST data (in the request body)
+            @QueryParam("platformValidated") Boolean platformValidated,
+            @QueryParam("executionType") String executionType
+            ) {
+        List<Feature> clientFeatures = new ArrayList<>();
+        try {
+            for(String line:ndjson.split("\\r?\\n"))
+            {
+                if(!line.isBlank())
+                {
+                    // GeoJSONFactory wraps all parse errors in RuntimeException
+                    clientFeatures.add((Feature) GeoJSONFactory.create(line));
+                }
+            }
+        } catch (RuntimeException ex) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(Map.of("errorMessage", "Could not read the features: " + ex.getMessage())).build();
+        }
+        try {
+            return Response.ok().entity(this.getModelIdsForFeatures(clientFeatures, platformValidated, executionType)).build();
+        } catch (IOException ex) {
+            return Response.serverError().entity(ex.getMessage()).build();
+        }
+    }
+
+    /**
+     * Matches the features in parallel. All of them use the same catalog and spatial index. Features
+     * without a readable geometry get an error message, the rest of the batch is still matched
+     */
+    private List<Map<String, Object>> getModelIdsForFeatures(List<Feature> clientFeatures, Boolean platformValidated, String executionType) throws IOException
+    {
+        DSSCatalog catalog = DSSCatalog.getCurrent();
+        DSSModelIndex index = catalog.getModelIndex();
+        DSSModelSpatialIndex spatialIndex = catalog.getSpatialIndex();
+        BitSet candidateModels = index.getModels(platformValidated, executionType);
+        List<Map<String, Object>> retVal = new ArrayList<>();
+        // The readable geometries, and the results that they belong to
+        List<Geometry> geometries = new ArrayList<>();
+        List<Map<String, Object>> geometryResults = new ArrayList<>();
+        GeoJSONReader reader = new GeoJSONReader();
+        for(Feature feature:clientFeatures)
+        {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", feature.getId());
+            retVal.add(result);
+            if(feature.getGeometry() == null)
+            {
+                result.put("errorMessage", "The feature has no geometry");
+                continue;
+            }
+            try
+            {
+                geometries.add(reader.read(feature.getGeometry()));
+                geometryResults.add(result);
+            }
+            catch(RuntimeException ex)
+            {
+                // E.g. a polygon ring that is not closed. One bad geometry should not fail the whole batch
+                result.put("errorMessage", "Could not read the geometry: " + ex.getMessage());
+            }
+        }
+        List<BitSet> matches;
+        try
+        {
+            matches = DSSCatalogListener.getLocationBatchPool().submit(() -> spatialIndex.getModelsForEach(geometries)).get();
+        }
+        catch(InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while matching the locations", ex);
+        }
+        catch(ExecutionException ex)
+        {
+            throw new IOException("Error matching the locations: " + ex.getCause().getMessage(), ex.getCause());
+        }
+        for(int i = 0; i < matches.size(); i++)
+        {
+            BitSet matchingModels = matches.get(i);
+            matchingModels.and(candidateModels);
+            List<Map<String, String>> modelIds = new ArrayList<>();
+            for(int ordinal = matchingModels.nextSetBit(0); ordinal >= 0; ordinal = matchingModels.nextSetBit(ordinal + 1))
+            {
+                Map<String, String> modelId = new LinkedHashMap<>();
+                modelId.put("dss_id", catalog.getDSSList().get(index.getDSSOrdinal(ordinal)).getId());
+                modelId.put("model_id", index.getModel(ordinal).getId());
+                modelIds.add(modelId);
+            }
+            geometryResults.get(i).put("models", modelIds);
+        }
+        return retVal;
+    }
+
+    /**
+     * Get the area where a DSS model is valid, as a GeoJSON FeatureCollection with one feature. The area
+     * is the union of the model's countries and its custom geometry (valid_spatial), so the client
+     * does not need the country boundaries. For drawing on a map, a simplified area is usually good enough,
+     * and much smaller.
+     *
+     * @param DSSId The id of the DSS containing the model
+     * @param ModelId The id of the DSS model requested
+     * @param tolerance simplification tolerance in decimal degrees (default 0 = full resolution). It's rounded down
+     * to a power of two between 2^-24 and 4, so that only a few versions of the area are made
+     * @return the area. Models that are valid everywhere have the property "global" set to true
+     * @pathExample /rest/model/no.nibio.vips/PSILARTEMP/coverage?tolerance=0.01
+     */
+    @GET
+    @Path("model/{DSSId}/{ModelId}/coverage")
+    @GZIP
+    @Produces("application/json")
+    public Response getDSSModelCoverage(
+            @PathParam("DSSId") String DSSId,
+            @PathParam("ModelId") String ModelId,
+            @QueryParam("tolerance") Double tolerance
+            ) {
+        if(tolerance != null && tolerance < 0)
+        {
+            return Response.status(Response.Status.BAD_REQUEST).entity(Map.of("errorMessage", "The tolerance can't be negative")).build();
+        }
+        try {
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            Integer ordinal = catalog.getModelIndex().getModelOrdinal(DSSId, ModelId);
+            if (ordinal == null) {
+                return Response.status(Response.Status.NOT_FOUND).entity(Map.of("errorMessage", "Could not find DSS Model with id " + ModelId + " in DSS with id " + DSSId)).build();
+            }
+            BitSet models = new BitSet();
+            models.set(ordinal);
+            double detailTolerance = DSSModelSpatialIndex.getDetailLevelTolerance(tolerance != null ? tolerance : 0);
+            return CatalogResponseCache.getResponse(this.request, catalog, Arrays.asList("model/coverage", DSSId, ModelId, detailTolerance),
+                    () -> this.DSSController.getCoverage(catalog, models, detailTolerance)
+            );
+        } catch (IOException ex) {
+            return Response.serverError().entity(ex.getMessage()).build();
+        }
+    }
+
+    /**
+     * Get the areas where DSS models are valid, as a GeoJSON FeatureCollection with one feature per model.
+     * See {@link #getDSSModelCoverage(String, String, Double)}
+     *
+     * @param platformValidated true or false. If not set, all models are included
+     * @param executionType filter for types of models. Example values are ONTHEFLY and LINK. See DSSModel.Execution for more
+     * @param cropCodesStr comma separated <a href="https://www.eppo.int/RESOURCES/eppo_databases/eppo_codes">EPPO codes</a> for the crops. Optional
+     * @param pestCode <a href="https://www.eppo.int/RESOURCES/eppo_databases/eppo_codes">EPPO code</a> for the pest. Optional
+     * @param tolerance simplification tolerance in decimal degrees (default 0 = full resolution). It's rounded
+     * like in {@link #getDSSModelCoverage(String, String, Double)}
+     * @return the areas, with the properties dss_id, model_id and global
+     * @pathExample /rest/coverage?crops=SOLTU&tolerance=0.05
+     */
+    @GET
+    @Path("coverage")
+    @GZIP
+    @Produces("application/json")
+    public Response getCoverage(
+            @QueryParam("platformValidated") Boolean platformValidated,
+            @QueryParam("executionType") String executionType,
+            @QueryParam("crops") String cropCodesStr,
+            @QueryParam("pest") String pestCode,
+            @QueryParam("tolerance") Double tolerance
+            ) {
+        if(tolerance != null && tolerance < 0)
+        {
+            return Response.status(Response.Status.BAD_REQUEST).entity(Map.of("errorMessage", "The tolerance can't be negative")).build();
+        }
+        try {
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            double detailTolerance = DSSModelSpatialIndex.getDetailLevelTolerance(tolerance != null ? tolerance : 0);
+            return CatalogResponseCache.getResponse(this.request, catalog,
+                    Arrays.asList("coverage", platformValidated, executionType, cropCodesStr, pestCode, detailTolerance),
+                    () -> {
+                        DSSModelIndex index = catalog.getModelIndex();
+                        BitSet models = index.getModels(platformValidated, executionType);
+                        if(cropCodesStr != null && !cropCodesStr.isBlank())
+                        {
+                            models.and(index.getModelsForCrops(Arrays.asList(cropCodesStr.split(","))));
+                        }
+                        if(pestCode != null && !pestCode.isBlank())
+                        {
+                            models.and(index.getModelsForPest(pestCode));
+                        }
+                        return this.DSSController.getCoverage(catalog, models, detailTolerance);
+                    }
+            );
+        } catch (IOException ex) {
+            return Response.serverError().entity(ex.getMessage()).build();
+        }
+    }
+
+    /**
+     * Get a <a href="https://github.com/mapbox/vector-tile-spec">Mapbox Vector Tile</a> with the areas where
+     * DSS models are valid, for drawing all of them on a map. The tiles use the usual Web Mercator
+     * tiling scheme. There is one layer, "coverage", with one feature per model. Each feature has the
+     * properties dss_id and model_id
+     *
+     * @param zoom the zoom level (0-{@value #COVERAGE_TILE_MAX_ZOOM})
+     * @param x the column of the tile
+     * @param y the row of the tile
+     * @param platformValidated true or false. If not set, all models are included
+     * @param executionType filter for types of models. Example values are ONTHEFLY and LINK. See DSSModel.Execution for more
+     * @return the tile. Empty if no models are valid in it
+     * @pathExample /rest/coverage/tiles/4/8/4
+     */
+    @GET
+    @Path("coverage/tiles/{z}/{x}/{y}")
+    @GZIP
+    @Produces("application/vnd.mapbox-vector-tile")
+    public Response getCoverageTile(
+            @PathParam("z") Integer zoom,
+            @PathParam("x") Integer x,
+            @PathParam("y") Integer y,
+            @QueryParam("platformValidated") Boolean platformValidated,
+            @QueryParam("executionType") String executionType
+            ) {
+        if(zoom < 0 || zoom > COVERAGE_TILE_MAX_ZOOM || x < 0 || x >= (1 << zoom) || y < 0 || y >= (1 << zoom))
+        {
+            return Response.status(Response.Status.BAD_REQUEST).type("application/json")
+                    .entity(Map.of("errorMessage", "There is no tile " + zoom + "/" + x + "/" + y)).build();
+        }
+        try {
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            return CoverageTileCache.getResponse(this.request, catalog, Arrays.asList(platformValidated, executionType, zoom, x, y),
+                    () -> this.DSSController.getCoverageTile(catalog, catalog.getModelIndex().getModels(platformValidated, executionType), zoom, x, y)
+            );
+        } catch (IOException ex) {
+            return Response.serverError().entity(ex.getMessage()).build();
+        }
     }
 
     /**
@@ -1054,25 +1315,121 @@ public class DSSService {
      */
     @GET
     @Path("countries")
+    @GZIP
     @Produces("application/json")
     public Response getDSSCountries(
             @QueryParam("platformValidated") Boolean platformValidated
     )
     {
         try {
-            List<DSS> allDSSs = this.DSSController.getDSSListObj(platformValidated);
-            Set<String> countries = new HashSet<>();
-            for(DSS dss:allDSSs)
+            DSSCatalog catalog = DSSCatalog.getCurrent();
+            return CatalogResponseCache.getResponse(this.request, catalog, Arrays.asList("countries", platformValidated),
+                    () -> {
+                        DSSModelIndex index = catalog.getModelIndex();
+                        BitSet models = index.getModels(platformValidated, null);
+                        Set<String> countries = new HashSet<>();
+                        for(int ordinal = models.nextSetBit(0); ordinal >= 0; ordinal = models.nextSetBit(ordinal + 1))
+                        {
+                            countries.addAll(index.getValidity(ordinal).getCountries());
+                        }
+                        return countries;
+                    }
+            );
+        } catch (IOException ex) {
+            return Response.serverError().entity(ex.getMessage()).build();
+        }
+    }
+
+    /**
+     * Find the country that a point is in
+     * @param latitude in decimal degrees (WGS84)
+     * @param longitude in decimal degrees (WGS84)
+     * @return The ISO-3166-1 alpha-3 codes of the countries at the point. Usually one, or none at sea
+     * @pathExample /rest/countries/at?latitude=59.678835236960765&longitude=12.01629638671875
+     * @responseExample application/json ["SWE"]
+     */
+    @GET
+    @Path("countries/at")
+    @Produces("application/json")
+    public Response getCountriesAt(
+            @QueryParam("latitude") Double latitude,
+            @QueryParam("longitude") Double longitude
+    )
+    {
+        String coordinateError = getCoordinateError(latitude, longitude);
+        if(coordinateError != null)
+        {
+            return Response.status(Response.Status.BAD_REQUEST).entity(Map.of("errorMessage", coordinateError)).build();
+        }
+        try {
+            Geometry point = new GeometryFactory().createPoint(new Coordinate(longitude, latitude));
+            return Response.ok().entity(CountryBoundaryStore.getInstance().getCountryCodes(point)).build();
+        } catch (IOException ex) {
+            return Response.serverError().entity(ex.getMessage()).build();
+        }
+    }
+
+    /**
+     * Find the countries that each of many locations (e.g. the fields of a farm) are in.
+     * Locations that cross a border are in more than one country.
+     * Example input: See {@link #listModelsForLocations(String, Boolean, String)}.
+     * Example output
+     * <pre>
+     * [
+     {
+     "id": "field-1",
+     "countries": ["SWE"]
+     }
+     ]
+     * </pre>
+     *
+     * @param geoJson a <a href="https://geojson.org/">GeoJSON</a> FeatureCollection. Each feature should have an id
+     * @return For each feature (in the same order as in the request): The feature id and the ISO-3166-1 alpha-3 codes of the countries
+     */
+    @POST
+    @Path("countries/at")
+    @Consumes("application/json")
+    @Produces("application/json")
+    @GZIP
+    public Response getCountriesAtLocations(
+            String geoJson // Sent as POST data (in the request body)
+    )
+    {
+        List<Feature> clientFeatures;
+        try {
+            // GeoJSONFactory wraps all parse errors in RuntimeException
+            clientFeatures = Arrays.asList(((FeatureCollection) GeoJSONFactory.create(geoJson)).getFeatures());
+        } catch (RuntimeException ex) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(Map.of("errorMessage", "Could not read the FeatureCollection: " + ex.getMessage())).build();
+        }
+        try {
+            CountryBoundaryStore countryBoundaries = CountryBoundaryStore.getInstance();
+            GeoJSONReader reader = new GeoJSONReader();
+            List<Map<String, Object>> retVal = new ArrayList<>();
+            for(Feature feature:clientFeatures)
             {
-                for(DSSModel dssModel:dss.getModels())
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("id", feature.getId());
+                retVal.add(result);
+                if(feature.getGeometry() == null)
                 {
-                    if(dssModel.getValid_spatial() != null && dssModel.getValid_spatial().getCountries() != null)
-                    {
-                        countries.addAll(Arrays.asList(dssModel.getValid_spatial().getCountries()));
-                    }
+                    result.put("errorMessage", "The feature has no geometry");
+                    continue;
+                }
+                Geometry geometry;
+                try
+                {
+                    geometry = reader.read(feature.getGeometry());
                 }
+                catch(RuntimeException ex)
+                {
+                    // E.g. a polygon ring that is not closed. One bad geometry should not fail the whole request
+                    result.put("errorMessage", "Could not read the geometry: " + ex.getMessage());
+                    continue;
+                }
+                result.put("countries", countryBoundaries.getCountryCodes(geometry));
             }
-            return Response.ok().entity(countries).build();
+            return Response.ok().entity(retVal).build();
         } catch (IOException ex) {
             return Response.serverError().entity(ex.getMessage()).build();
         }
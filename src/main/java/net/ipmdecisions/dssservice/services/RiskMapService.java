@@ -18,17 +18,13 @@
  */
 package net.ipmdecisions.dssservice.services;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.webcohesion.enunciate.metadata.rs.TypeHint;
-import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
+import net.ipmdecisions.dssservice.controller.DSSCatalog;
 import net.ipmdecisions.dssservice.entity.RiskMaps;
 
 /**
@@ -84,9 +80,12 @@ public class RiskMapService {
     
     private RiskMaps getRiskMaps() throws IOException
     {
-        File riskMapsFile = new File(System.getProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH") + "/risk_maps/risk_maps.yaml");
-        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-        return mapper.convertValue(mapper.readValue(riskMapsFile, HashMap.class), new TypeReference<RiskMaps>(){});
+        RiskMaps riskMaps = DSSCatalog.getCurrent().getRiskMaps();
+        if(riskMaps == null)
+        {
+            throw new IOException("Risk maps file not found or could not be read");
+        }
+        return riskMaps;
     }
     
 }
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Country boundaries in a compact binary format: An index with the ISO_A3 code, envelope, and
+ * position of each country, followed by the feature properties (as JSON) and boundary (as WKB) of each
+ * country. The file is memory mapped, and a country's boundary is only decoded when it's asked for.
+ *
+ * The file is created from the GeoJSON in COUNTRY_BOUNDARIES_FILE the first time the service starts,
+ * and written to net.ipmdecisions.dssservice.COUNTRY_BOUNDARIES_BINARY_FILE (default:
+ * country_boundaries.bin in java.io.tmpdir). Set it to an empty string to turn this off.
+ * COUNTRY_BOUNDARIES_FILE may also point directly at a binary file.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class CountryBoundaryFile {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CountryBoundaryFile.class);
+
+	private static final int MAGIC = 0x49504d43; // "IPMC"
+	// Version 2 added the feature properties
+	private static final int FORMAT_VERSION = 2;
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	/**
+	 * Where a country is in the file
+	 */
+	private static class Entry {
+		final Envelope envelope;
+		// The properties start at the offset, and are followed by the WKB
+		final int offset;
+		final int propertiesLength;
+		final int length;
+
+		Entry(Envelope envelope, int offset, int propertiesLength, int length)
+		{
+			this.envelope = envelope;
+			this.offset = offset;
+			this.propertiesLength = propertiesLength;
+			this.length = length;
+		}
+	}
+
+	private final File file;
+	private final String source;
+	private final Map<String, Entry> entries;
+	private final MappedByteBuffer buffer;
+
+	private CountryBoundaryFile(File file, String source, Map<String, Entry> entries, MappedByteBuffer buffer)
+	{
+		this.file = file;
+		this.source = source;
+		this.entries = entries;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * @return the file for COUNTRY_BOUNDARIES_BINARY_FILE, or null if it's turned off
+	 */
+	public static File getConfiguredFile()
+	{
+		String path = System.getProperty("net.ipmdecisions.dssservice.COUNTRY_BOUNDARIES_BINARY_FILE",
+				new File(System.getProperty("java.io.tmpdir"), "country_boundaries.bin").getPath());
+		return path.isBlank() ? null : new File(path);
+	}
+
+	/**
+	 * @param sourceFile the GeoJSON file
+	 * @return identifies the version of the GeoJSON file that a binary file was made from
+	 */
+	public static String getSource(File sourceFile)
+	{
+		return sourceFile.getAbsolutePath() + "|" + sourceFile.length() + "|" + sourceFile.lastModified();
+	}
+
+	/**
+	 * @param file a file that may be a binary country boundary file
+	 * @return true if the file starts like a binary country boundary file
+	 */
+	public static boolean isBinaryFile(File file)
+	{
+		try(DataInputStream in = new DataInputStream(new FileInputStream(file)))
+		{
+			return in.readInt() == MAGIC;
+		}
+		catch(IOException ex)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Memory maps the file and reads the index
+	 * @param file the binary file
+	 * @return the opened file
+	 * @throws IOException if the file could not be read, or is not a binary country boundary file of the current version
+	 */
+	public static CountryBoundaryFile open(File file) throws IOException
+	{
+		MappedByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			// The mapping stays valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		ByteBuffer index = buffer.duplicate();
+		if(index.getInt() != MAGIC || index.getInt() != FORMAT_VERSION)
+		{
+			throw new IOException(file.getPath() + " is not a binary country boundary file of version " + FORMAT_VERSION);
+		}
+		String source = readString(index);
+		int count = index.getInt();
+		Map<String, Entry> entries = new LinkedHashMap<>();
+		for(int i = 0; i < count; i++)
+		{
+			String countryCode = readString(index);
+			Envelope envelope = new Envelope(index.getDouble(), index.getDouble(), index.getDouble(), index.getDouble());
+			entries.put(countryCode, new Entry(envelope, index.getInt(), index.getInt(), index.getInt()));
+		}
+		return new CountryBoundaryFile(file, source, Collections.unmodifiableMap(entries), buffer);
+	}
+
+	/**
+	 * Writes the boundaries to a binary file. The file is written to a temporary file first,
+	 * so that readers never see a half written file
+	 * @param file the binary file
+	 * @param source see {@link #getSource(File)}
+	 * @param geometriesByCountryCode the boundaries
+	 * @param propertiesByCountryCode the feature properties of the countries. Countries without properties get an empty map
+	 * @throws IOException
+	 */
+	public static void write(File file, String source, Map<String, Geometry> geometriesByCountryCode,
+			Map<String, Map<String, Object>> propertiesByCountryCode) throws IOException
+	{
+		WKBWriter writer = new WKBWriter();
+		List<String> countryCodes = new ArrayList<>(geometriesByCountryCode.keySet());
+		List<byte[]> properties = new ArrayList<>();
+		List<byte[]> wkbs = new ArrayList<>();
+		for(String countryCode:countryCodes)
+		{
+			properties.add(objectMapper.writeValueAsBytes(propertiesByCountryCode.getOrDefault(countryCode, Map.of())));
+			wkbs.add(writer.write(geometriesByCountryCode.get(countryCode)));
+		}
+		// The size of the header and index, so that we know where the data starts
+		int indexSize = 4 + 4 + getStringSize(source) + 4;
+		for(String countryCode:countryCodes)
+		{
+			indexSize += getStringSize(countryCode) + 4 * 8 + 4 + 4 + 4;
+		}
+		File tempFile = new File(file.getPath() + ".tmp");
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			writeString(out, source);
+			out.writeInt(countryCodes.size());
+			int offset = indexSize;
+			for(int i = 0; i < countryCodes.size(); i++)
+			{
+				Envelope envelope = geometriesByCountryCode.get(countryCodes.get(i)).getEnvelopeInternal();
+				writeString(out, countryCodes.get(i));
+				out.writeDouble(envelope.getMinX());
+				out.writeDouble(envelope.getMaxX());
+				out.writeDouble(envelope.getMinY());
+				out.writeDouble(envelope.getMaxY());
+				out.writeInt(offset);
+				out.writeInt(properties.get(i).length);
+				out.writeInt(wkbs.get(i).length);
+				offset += properties.get(i).length + wkbs.get(i).length;
+			}
+			for(int i = 0; i < countryCodes.size(); i++)
+			{
+				out.write(properties.get(i));
+				out.write(wkbs.get(i));
+			}
+		}
+		catch(IOException ex)
+		{
+			tempFile.delete();
+			throw ex;
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static int getStringSize(String value)
+	{
+		return 2 + value.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException
+	{
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in)
+	{
+		byte[] bytes = new byte[in.getShort() & 0xffff];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return the source that the file was made from. See {@link #getSource(File)}
+	 */
+	public String getSource()
+	{
+		return this.source;
+	}
+
+	/**
+	 * @return the ISO_A3 codes of the countries in the file
+	 */
+	public Set<String> getCountryCodes()
+	{
+		return this.entries.keySet();
+	}
+
+	/**
+	 * @param countryCode ISO-3166-1 alpha-3 country code
+	 * @return the bounding box of the country, or null if not found
+	 */
+	public Envelope getEnvelope(String countryCode)
+	{
+		Entry entry = this.entries.get(countryCode);
+		return entry != null ? entry.envelope : null;
+	}
+
+	/**
+	 * Decodes the boundary of a country. This is not cached here
+	 * @param countryCode ISO-3166-1 alpha-3 country code
+	 * @return the boundary, or null if not found
+	 */
+	public Geometry readGeometry(String countryCode)
+	{
+		Entry entry = this.entries.get(countryCode);
+		if(entry == null)
+		{
+			return null;
+		}
+		byte[] wkb = new byte[entry.length];
+		// Each reader needs its own position
+		this.buffer.duplicate().position(entry.offset + entry.propertiesLength).get(wkb);
+		try
+		{
+			return new WKBReader().read(wkb);
+		}
+		catch(ParseException ex)
+		{
+			LOGGER.error("Could not decode the boundary of " + countryCode + " in " + this.file.getPath() + ": " + ex.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Decodes the feature properties of a country. This is not cached here
+	 * @param countryCode ISO-3166-1 alpha-3 country code
+	 * @return the properties, or null if not found
+	 */
+	public Map<String, Object> readProperties(String countryCode)
+	{
+		Entry entry = this.entries.get(countryCode);
+		if(entry == null)
+		{
+			return null;
+		}
+		byte[] properties = new byte[entry.propertiesLength];
+		this.buffer.duplicate().position(entry.offset).get(properties);
+		try
+		{
+			return objectMapper.readValue(properties, new TypeReference<Map<String, Object>>() {});
+		}
+		catch(IOException ex)
+		{
+			LOGGER.error("Could not decode the properties of " + countryCode + " in " + this.file.getPath() + ": " + ex.getMessage());
+			return null;
+		}
+	}
+}
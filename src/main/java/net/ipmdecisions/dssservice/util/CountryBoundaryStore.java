@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wololo.geojson.Feature;
+import org.wololo.geojson.FeatureCollection;
+import org.wololo.jts2geojson.GeoJSONReader;
+import org.wololo.jts2geojson.GeoJSONWriter;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The country boundaries from COUNTRY_BOUNDARIES_FILE, read and parsed once for the whole JVM.
+ * Each country (identified by its ISO_A3 code) is available both as GeoJSON and as a
+ * JTS {@link PreparedGeometry}, which is much faster for repeated intersection tests.
+ *
+ * If the boundaries are available as a {@link CountryBoundaryFile}, only the index is read at
+ * startup, and each country is decoded the first time it's asked for. Otherwise the GeoJSON file
+ * is parsed (streamed, one country at a time), and a binary file is written for the next startup.
+ * The GeoJSON features are then created when they are asked for, with the same properties as in the file.
+ * Instances are thread safe.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class CountryBoundaryStore {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CountryBoundaryStore.class);
+
+	private static volatile CountryBoundaryStore instance;
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final PreparedGeometryFactory preparedGeometryFactory = new PreparedGeometryFactory();
+	// Null if the boundaries were read from GeoJSON
+	private final CountryBoundaryFile boundaryFile;
+	// Null if the boundaries were read from a file
+	private final FeatureCollection featureCollection;
+	private final Map<String, Feature> featuresByCountryCode;
+	private final Map<String, PreparedGeometry> geometriesByCountryCode;
+	// The feature properties, if the boundaries were streamed from GeoJSON. Otherwise null
+	private final Map<String, Map<String, Object>> propertiesByCountryCode;
+	// Identifies the version of the boundaries. Null if not known
+	private final String source;
+	// The country codes by bounding box, for reverse lookups. Built on first use
+	private volatile STRtree envelopeIndex;
+
+	/**
+	 * @param featureCollection country boundaries. Each feature must have the ISO_A3 property
+	 */
+	public CountryBoundaryStore(FeatureCollection featureCollection)
+	{
+		this.boundaryFile = null;
+		this.source = null;
+		this.featureCollection = featureCollection;
+		Map<String, Feature> features = new LinkedHashMap<>();
+		Map<String, PreparedGeometry> geometries = new HashMap<>();
+		GeoJSONReader reader = new GeoJSONReader();
+		for(Feature feature:featureCollection.getFeatures())
+		{
+			Object countryCode = feature.getProperties() != null ? feature.getProperties().get("ISO_A3") : null;
+			if(countryCode == null || feature.getGeometry() == null || features.containsKey(countryCode.toString()))
+			{
+				continue;
+			}
+			features.put(countryCode.toString(), feature);
+			geometries.put(countryCode.toString(), this.preparedGeometryFactory.create(reader.read(feature.getGeometry())));
+		}
+		this.featuresByCountryCode = Collections.unmodifiableMap(features);
+		this.geometriesByCountryCode = Collections.unmodifiableMap(geometries);
+		this.propertiesByCountryCode = null;
+	}
+
+	/**
+	 * @param geometriesByCountryCode the prepared country boundaries
+	 * @param propertiesByCountryCode the feature properties
+	 * @param source see {@link CountryBoundaryFile#getSource(File)}
+	 */
+	private CountryBoundaryStore(Map<String, PreparedGeometry> geometriesByCountryCode, Map<String, Map<String, Object>> propertiesByCountryCode, String source)
+	{
+		this.boundaryFile = null;
+		this.source = source;
+		this.featureCollection = null;
+		this.featuresByCountryCode = null;
+		this.geometriesByCountryCode = Collections.unmodifiableMap(geometriesByCountryCode);
+		this.propertiesByCountryCode = Collections.unmodifiableMap(propertiesByCountryCode);
+	}
+
+	/**
+	 * Reads the country boundaries one feature at a time, so that the file is never in memory
+	 * as a whole. The geometry and properties of each feature are kept, the GeoJSON feature itself is not
+	 * @param file a GeoJSON FeatureCollection. Each feature must have the ISO_A3 property
+	 * @return the store
+	 * @throws IOException if the file could not be read
+	 */
+	public static CountryBoundaryStore readGeoJSON(File file) throws IOException
+	{
+		Map<String, PreparedGeometry> geometries = new LinkedHashMap<>();
+		Map<String, Map<String, Object>> properties = new HashMap<>();
+		GeoJSONReader reader = new GeoJSONReader();
+		PreparedGeometryFactory preparedGeometryFactory = new PreparedGeometryFactory();
+		try(JsonParser parser = objectMapper.getFactory().createParser(file))
+		{
+			if(parser.nextToken() != JsonToken.START_OBJECT)
+			{
+				throw new IOException(file.getPath() + " is not a GeoJSON FeatureCollection");
+			}
+			while(parser.nextToken() == JsonToken.FIELD_NAME)
+			{
+				String fieldName = parser.getCurrentName();
+				parser.nextToken();
+				if(!"features".equals(fieldName) || parser.currentToken() != JsonToken.START_ARRAY)
+				{
+					// E.g. "type" or "crs"
+					parser.skipChildren();
+					continue;
+				}
+				while(parser.nextToken() == JsonToken.START_OBJECT)
+				{
+					Feature feature = objectMapper.readValue(parser, Feature.class);
+					Object countryCode = feature.getProperties() != null ? feature.getProperties().get("ISO_A3") : null;
+					if(countryCode != null && feature.getGeometry() != null && !geometries.containsKey(countryCode.toString()))
+					{
+						geometries.put(countryCode.toString(), preparedGeometryFactory.create(reader.read(feature.getGeometry())));
+						properties.put(countryCode.toString(), feature.getProperties());
+					}
+				}
+			}
+		}
+		return new CountryBoundaryStore(geometries, properties, CountryBoundaryFile.getSource(file));
+	}
+
+	/**
+	 * @param boundaryFile country boundaries in the binary format. Countries are decoded on first use
+	 */
+	public CountryBoundaryStore(CountryBoundaryFile boundaryFile)
+	{
+		this.boundaryFile = boundaryFile;
+		this.source = boundaryFile.getSource();
+		this.featureCollection = null;
+		this.featuresByCountryCode = null;
+		this.geometriesByCountryCode = new ConcurrentHashMap<>();
+		this.propertiesByCountryCode = null;
+	}
+
+	/**
+	 * @return the store for COUNTRY_BOUNDARIES_FILE. It's read on first use
+	 * @throws IOException if the file could not be read
+	 */
+	public static CountryBoundaryStore getInstance() throws IOException
+	{
+		CountryBoundaryStore store = instance;
+		if(store == null)
+		{
+			synchronized(CountryBoundaryStore.class)
+			{
+				store = instance;
+				if(store == null)
+				{
+					String fileName = System.getProperty("net.ipmdecisions.dssservice.COUNTRY_BOUNDARIES_FILE");
+					if(fileName == null)
+					{
+						throw new IOException("net.ipmdecisions.dssservice.COUNTRY_BOUNDARIES_FILE is not set");
+					}
+					long start = System.currentTimeMillis();
+					store = read(new File(fileName), CountryBoundaryFile.getConfiguredFile());
+					LOGGER.info("Read " + store.getCountryCodes().size() + " country boundaries from " + fileName
+							+ " in " + (System.currentTimeMillis() - start) + " ms");
+					instance = store;
+				}
+			}
+		}
+		return store;
+	}
+
+	/**
+	 * @param file GeoJSON or binary country boundaries
+	 * @param binaryFile where to keep a binary copy of GeoJSON boundaries. Null to not use a binary copy
+	 * @return the store
+	 * @throws IOException if the file could not be read
+	 */
+	static CountryBoundaryStore read(File file, File binaryFile) throws IOException
+	{
+		if(CountryBoundaryFile.isBinaryFile(file))
+		{
+			return new CountryBoundaryStore(CountryBoundaryFile.open(file));
+		}
+		String source = CountryBoundaryFile.getSource(file);
+		if(binaryFile != null && binaryFile.isFile())
+		{
+			try
+			{
+				CountryBoundaryFile boundaryFile = CountryBoundaryFile.open(binaryFile);
+				if(source.equals(boundaryFile.getSource()))
+				{
+					return new CountryBoundaryStore(boundaryFile);
+				}
+				LOGGER.info("The binary country boundary file " + binaryFile.getPath() + " is outdated");
+			}
+			catch(IOException ex)
+			{
+				LOGGER.warn("Could not read the binary country boundary file " + binaryFile.getPath() + ": " + ex.getMessage());
+			}
+		}
+		CountryBoundaryStore store = readGeoJSON(file);
+		if(binaryFile != null)
+		{
+			try
+			{
+				Map<String, Geometry> geometries = new LinkedHashMap<>();
+				for(String countryCode:store.getCountryCodes())
+				{
+					geometries.put(countryCode, store.getGeometry(countryCode));
+				}
+				CountryBoundaryFile.write(binaryFile, source, geometries, store.propertiesByCountryCode);
+			}
+			catch(IOException ex)
+			{
+				// The binary file is only an optimization
+				LOGGER.warn("Could not write the binary country boundary file " + binaryFile.getPath() + ": " + ex.getMessage());
+			}
+		}
+		return store;
+	}
+
+	/**
+	 * @return identifies the file (and version of it) that the boundaries were read from. Null if not read from a file
+	 */
+	public String getSource()
+	{
+		return this.source;
+	}
+
+	/**
+	 * @return the ISO_A3 codes of all the countries
+	 */
+	public Set<String> getCountryCodes()
+	{
+		if(this.boundaryFile != null)
+		{
+			return this.boundaryFile.getCountryCodes();
+		}
+		return this.featuresByCountryCode != null ? this.featuresByCountryCode.keySet() : this.geometriesByCountryCode.keySet();
+	}
+
+	/**
+	 * @return all the country boundaries. If read from a file, the features are created for each call
+	 */
+	public FeatureCollection getFeatureCollection() {
+		if(this.featureCollection != null)
+		{
+			return this.featureCollection;
+		}
+		List<Feature> features = new ArrayList<>();
+		for(String countryCode:this.getCountryCodes())
+		{
+			Feature feature = this.getFeature(countryCode);
+			if(feature != null)
+			{
+				features.add(feature);
+			}
+		}
+		return new GeoJSONWriter().write(features);
+	}
+
+	/**
+	 * @param countryCode ISO-3166-1 alpha-3 country code
+	 * @return the boundary of the country as GeoJSON, or null if not found
+	 */
+	public Feature getFeature(String countryCode)
+	{
+		if(this.featuresByCountryCode != null)
+		{
+			return this.featuresByCountryCode.get(countryCode);
+		}
+		Geometry geometry = this.getGeometry(countryCode);
+		return geometry != null ? new Feature(new GeoJSONWriter().write(geometry), this.getProperties(countryCode)) : null;
+	}
+
+	/**
+	 * @param countryCode ISO-3166-1 alpha-3 country code
+	 * @return the feature properties of the country, as in the GeoJSON file. Null if not found
+	 */
+	public Map<String, Object> getProperties(String countryCode)
+	{
+		if(this.featuresByCountryCode != null)
+		{
+			Feature feature = this.featuresByCountryCode.get(countryCode);
+			return feature != null ? feature.getProperties() : null;
+		}
+		if(this.boundaryFile != null)
+		{
+			return this.boundaryFile.readProperties(countryCode);
+		}
+		return this.propertiesByCountryCode.get(countryCode);
+	}
+
+	/**
+	 * @param countryCode ISO-3166-1 alpha-3 country code
+	 * @return the boundary of the country, prepared for fast intersection tests. Null if not found
+	 */
+	public PreparedGeometry getPreparedGeometry(String countryCode)
+	{
+		if(countryCode == null)
+		{
+			return null;
+		}
+		if(this.boundaryFile == null)
+		{
+			return this.geometriesByCountryCode.get(countryCode);
+		}
+		// No mapping is added if the country is not in the file
+		return this.geometriesByCountryCode.computeIfAbsent(countryCode, code -> {
+			Geometry geometry = this.boundaryFile.readGeometry(code);
+			return geometry != null ? this.preparedGeometryFactory.create(geometry) : null;
+		});
+	}
+
+	/**
+	 * @param countryCode ISO-3166-1 alpha-3 country code
+	 * @return the boundary of the country, or null if not found
+	 */
+	public Geometry getGeometry(String countryCode)
+	{
+		PreparedGeometry preparedGeometry = this.getPreparedGeometry(countryCode);
+		return preparedGeometry != null ? preparedGeometry.getGeometry() : null;
+	}
+
+	/**
+	 * Finds the countries that a location is in. Only the countries whose bounding box matches
+	 * are tested, and the boundaries are prepared, so this is fast enough for point queries
+	 * @param geometry the location, e.g. a point or a field
+	 * @return the ISO_A3 codes of the countries that intersect with the location, sorted. Usually
+	 * one (or more if the location crosses a border), or none for locations at sea
+	 */
+	public List<String> getCountryCodes(Geometry geometry)
+	{
+		List<String> retVal = new ArrayList<>();
+		for(Object candidate:this.getEnvelopeIndex().query(geometry.getEnvelopeInternal()))
+		{
+			String countryCode = (String) candidate;
+			PreparedGeometry boundary = this.getPreparedGeometry(countryCode);
+			if(boundary != null && boundary.intersects(geometry))
+			{
+				retVal.add(countryCode);
+			}
+		}
+		Collections.sort(retVal);
+		return retVal;
+	}
+
+	private STRtree getEnvelopeIndex()
+	{
+		STRtree index = this.envelopeIndex;
+		if(index == null)
+		{
+			synchronized(this)
+			{
+				index = this.envelopeIndex;
+				if(index == null)
+				{
+					index = new STRtree();
+					for(String countryCode:this.getCountryCodes())
+					{
+						// The binary file has the envelopes in its index, so nothing is decoded here
+						Envelope envelope = this.boundaryFile != null ? this.boundaryFile.getEnvelope(countryCode)
+								: this.geometriesByCountryCode.get(countryCode).getGeometry().getEnvelopeInternal();
+						index.insert(envelope, countryCode);
+					}
+					// After build(), the tree is read only, and can be queried from many threads at once
+					index.build();
+					this.envelopeIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+}
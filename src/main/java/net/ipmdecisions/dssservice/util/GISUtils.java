@@ -24,20 +24,14 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wololo.geojson.Feature;
 import org.wololo.geojson.FeatureCollection;
-import org.wololo.geojson.GeoJSONFactory;
 import org.wololo.jts2geojson.GeoJSONWriter;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -54,46 +48,49 @@ import net.ipmdecisions.dssservice.services.DSSService;
 public class GISUtils {
 	
 	private static Logger LOGGER = LoggerFactory.getLogger(GISUtils.class);
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
 	
-    private FeatureCollection allCountryBoundaries = null;
+    private CountryBoundaryStore countryBoundaryStore = null;
 
-    public FeatureCollection getCountryBoundaries(){
-        if(this.allCountryBoundaries == null)
+    /**
+     * @return the country boundaries. Unless set with {@link #setCountryBoundaries(FeatureCollection)},
+     * the JVM-wide {@link CountryBoundaryStore} is used
+     */
+    public CountryBoundaryStore getCountryBoundaryStore() throws IOException {
+        if(this.countryBoundaryStore == null)
         {
-            try {
+            this.countryBoundaryStore = CountryBoundaryStore.getInstance();
+        }
+        return this.countryBoundaryStore;
+    }
 
-                Path path = Paths.get(System.getProperty("net.ipmdecisions.dssservice.COUNTRY_BOUNDARIES_FILE"));
-            	Stream<String> lines = Files.lines(path);
-                String all = lines.collect(Collectors.joining("\n"));
-                lines.close();
-                this.allCountryBoundaries = (FeatureCollection) GeoJSONFactory.create(all);
-            } catch (IOException | NullPointerException ex) {
-                ex.printStackTrace();
-            }
+    public FeatureCollection getCountryBoundaries(){
+        try {
+            return this.getCountryBoundaryStore().getFeatureCollection();
+        } catch (IOException ex) {
+            LOGGER.error("Could not read country boundaries: " + ex.getMessage());
+            return null;
         }
-        return this.allCountryBoundaries;
     }
     
     public Feature getCountryBoundary(String countryCode)
     {
-        FeatureCollection countryBoundaries = this.getCountryBoundaries();
-        for(Feature feature:countryBoundaries.getFeatures())
-        {
-            if(feature.getProperties().get("ISO_A3").equals(countryCode))
-            {
-                return feature;
-            }
+        try {
+            return this.getCountryBoundaryStore().getFeature(countryCode);
+        } catch (IOException ex) {
+            LOGGER.error("Could not read country boundaries: " + ex.getMessage());
+            return null;
         }
-        return null;
     }
     
     public FeatureCollection getCountryBoundaries(Set<String> countryCodes)
     {
         List<Feature> matching = new ArrayList<>();
-        FeatureCollection countryBoundaries = this.getCountryBoundaries();
-        for(Feature feature:countryBoundaries.getFeatures())
+        for(String countryCode:countryCodes)
         {
-            if(countryCodes.contains((String) feature.getProperties().get("ISO_A3")))
+            Feature feature = this.getCountryBoundary(countryCode);
+            if(feature != null)
             {
                 matching.add(feature);
             }
@@ -107,14 +104,13 @@ public class GISUtils {
      */
     public void setCountryBoundaries(FeatureCollection countryBoundaries)
     {
-        this.allCountryBoundaries = countryBoundaries;
+        this.countryBoundaryStore = new CountryBoundaryStore(countryBoundaries);
     }
     
     public boolean isGeoJsonStringEmpty(String geoJsonString) {
     	try
     	{
-	    	ObjectMapper oMapper = new ObjectMapper();
-	    	JsonNode node = oMapper.readTree(geoJsonString);
+	    	JsonNode node = objectMapper.readTree(geoJsonString);
 	    	return node.isEmpty();
     	}
     	catch(JsonProcessingException ex) {
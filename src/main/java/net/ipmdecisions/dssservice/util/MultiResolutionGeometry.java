@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.util;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Polygonal;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A polygonal area in two resolutions, for fast intersection tests against detailed boundaries
+ * (e.g. coastlines). The area is simplified with {@link TopologyPreservingSimplifier}, which moves the
+ * boundary at most the tolerance. Buffering the simplified area out and in by a bit more than the
+ * tolerance gives an outer area that is guaranteed to contain the real one, and an inner area that is
+ * guaranteed to be inside it. Only geometries that intersect the outer area but not the inner
+ * area need the exact test, so the results are the same as for the full resolution area.
+ *
+ * The tolerance is net.ipmdecisions.dssservice.GEOMETRY_SIMPLIFY_TOLERANCE degrees (default 0.01). Set it to 0
+ * to keep all areas in full resolution only.
+ * Areas with few coordinates, and non polygonal geometries, are only kept in full resolution.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class MultiResolutionGeometry {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MultiResolutionGeometry.class);
+	private static final double DEFAULT_TOLERANCE = 0.01;
+	private static final double TOLERANCE = getConfiguredTolerance();
+	// Simplifying smaller geometries than this does not pay off
+	private static final int MIN_COORDINATES = 1000;
+	// Buffers approximate curves with straight lines, so we go a bit further than the tolerance
+	private static final double SAFETY_FACTOR = 1.1;
+
+	private final PreparedGeometry full;
+	// Null if the area is only kept in full resolution
+	private final PreparedGeometry outer;
+	private final PreparedGeometry inner;
+
+	/**
+	 * @return the configured GEOMETRY_SIMPLIFY_TOLERANCE, or the default if it's not a finite number of zero or more
+	 */
+	static double getConfiguredTolerance()
+	{
+		String tolerance = System.getProperty("net.ipmdecisions.dssservice.GEOMETRY_SIMPLIFY_TOLERANCE", String.valueOf(DEFAULT_TOLERANCE));
+		try
+		{
+			double retVal = Double.parseDouble(tolerance);
+			// The negated comparison also catches NaN
+			if(!(retVal >= 0) || Double.isInfinite(retVal))
+			{
+				LOGGER.error("GEOMETRY_SIMPLIFY_TOLERANCE must be zero or more degrees, but is " + tolerance
+						+ ". Using " + DEFAULT_TOLERANCE + " instead");
+				return DEFAULT_TOLERANCE;
+			}
+			return retVal;
+		}
+		catch(NumberFormatException ex)
+		{
+			LOGGER.error("Could not read GEOMETRY_SIMPLIFY_TOLERANCE (" + tolerance + "). Using " + DEFAULT_TOLERANCE + " instead");
+			return DEFAULT_TOLERANCE;
+		}
+	}
+
+	/**
+	 * @param geometry the area in full resolution
+	 */
+	public MultiResolutionGeometry(Geometry geometry)
+	{
+		PreparedGeometryFactory preparedGeometryFactory = new PreparedGeometryFactory();
+		this.full = preparedGeometryFactory.create(geometry);
+		if(TOLERANCE > 0 && geometry instanceof Polygonal && geometry.getNumPoints() >= MIN_COORDINATES)
+		{
+			Geometry simplified = TopologyPreservingSimplifier.simplify(geometry, TOLERANCE);
+			this.outer = preparedGeometryFactory.create(simplified.buffer(TOLERANCE * SAFETY_FACTOR));
+			this.inner = preparedGeometryFactory.create(simplified.buffer(-TOLERANCE * SAFETY_FACTOR));
+		}
+		else
+		{
+			this.outer = null;
+			this.inner = null;
+		}
+	}
+
+	/**
+	 * @return the area in full resolution
+	 */
+	public Geometry getGeometry()
+	{
+		return this.full.getGeometry();
+	}
+
+	/**
+	 * @param geometry the geometry to test
+	 * @return true if the geometry intersects with the area
+	 */
+	public boolean intersects(Geometry geometry)
+	{
+		if(this.outer != null)
+		{
+			if(!this.outer.intersects(geometry))
+			{
+				return false;
+			}
+			if(this.inner.intersects(geometry))
+			{
+				return true;
+			}
+		}
+		return this.full.intersects(geometry);
+	}
+
+	/**
+	 * @param geometry the geometry to test
+	 * @return true if the area covers all of the geometry. Always false for non polygonal areas
+	 */
+	public boolean covers(Geometry geometry)
+	{
+		if(!(this.full.getGeometry() instanceof Polygonal))
+		{
+			// covers() does not support geometry collections
+			return false;
+		}
+		if(this.outer != null)
+		{
+			if(!this.outer.intersects(geometry))
+			{
+				return false;
+			}
+			if(this.inner.covers(geometry))
+			{
+				return true;
+			}
+		}
+		return this.full.covers(geometry);
+	}
+}
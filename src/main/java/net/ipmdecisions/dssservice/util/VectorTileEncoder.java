@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package net.ipmdecisions.dssservice.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.util.PolygonExtracter;
+
+/**
+ * Encodes polygons as a <a href="https://github.com/mapbox/vector-tile-spec/tree/master/2.1">Mapbox Vector Tile</a>
+ * (version 2) with a single layer. The format is a small protobuf schema, so it's written directly
+ * here instead of through a protobuf library.
+ *
+ * The geometries must already be in tile coordinates (0 to extent, with y pointing down). The coordinates
+ * are rounded to integers, and ring orientation is fixed as required by the specification.
+ *
+ * @copyright 2026 <a href="http://www.nibio.no/">NIBIO</a>
+ */
+public class VectorTileEncoder {
+	public static final int DEFAULT_EXTENT = 4096;
+
+	// Protobuf wire types
+	private static final int VARINT = 0;
+	private static final int LENGTH_DELIMITED = 2;
+
+	// Geometry commands
+	private static final int MOVE_TO = 1;
+	private static final int LINE_TO = 2;
+	private static final int CLOSE_PATH = 7;
+
+	private static final int POLYGON = 3;
+
+	private final String layerName;
+	private final int extent;
+	private final List<String> keys = new ArrayList<>();
+	private final Map<String, Integer> keyIndexes = new HashMap<>();
+	private final List<String> values = new ArrayList<>();
+	private final Map<String, Integer> valueIndexes = new HashMap<>();
+	private final ByteArrayOutputStream features = new ByteArrayOutputStream();
+	private int featureCount = 0;
+
+	/**
+	 * @param layerName the name of the layer
+	 * @param extent the size of the tile in tile coordinates
+	 */
+	public VectorTileEncoder(String layerName, int extent)
+	{
+		this.layerName = layerName;
+		this.extent = extent;
+	}
+
+	/**
+	 * Adds the polygons in the geometry as one feature. Polygons that are less than one
+	 * unit in size after rounding are left out. Nothing is added if nothing is left
+	 * @param geometry in tile coordinates
+	 * @param attributes the feature's attributes
+	 */
+	public void addFeature(Geometry geometry, Map<String, String> attributes)
+	{
+		List<Integer> commands = new ArrayList<>();
+		// The cursor position. Coordinates are encoded relative to it
+		int[] cursor = new int[2];
+		for(Object polygon:PolygonExtracter.getPolygons(geometry))
+		{
+			this.addPolygon((Polygon) polygon, commands, cursor);
+		}
+		if(commands.isEmpty())
+		{
+			return;
+		}
+		List<Integer> tags = new ArrayList<>();
+		for(Map.Entry<String, String> attribute:attributes.entrySet())
+		{
+			tags.add(this.keyIndexes.computeIfAbsent(attribute.getKey(), key -> {
+				this.keys.add(key);
+				return this.keys.size() - 1;
+			}));
+			tags.add(this.valueIndexes.computeIfAbsent(attribute.getValue(), value -> {
+				this.values.add(value);
+				return this.values.size() - 1;
+			}));
+		}
+		ByteArrayOutputStream feature = new ByteArrayOutputStream();
+		writePacked(feature, 2, tags);
+		writeTag(feature, 3, VARINT);
+		writeVarint(feature, POLYGON);
+		writePacked(feature, 4, commands);
+		writeBytes(this.features, 2, feature.toByteArray());
+		this.featureCount++;
+	}
+
+	private void addPolygon(Polygon polygon, List<Integer> commands, int[] cursor)
+	{
+		// The exterior ring must have a positive area, and holes a negative area (with y pointing down)
+		int[][] exterior = getRing(polygon.getExteriorRing(), true);
+		if(exterior == null)
+		{
+			return;
+		}
+		this.addRing(exterior, commands, cursor);
+		for(int i = 0; i < polygon.getNumInteriorRing(); i++)
+		{
+			int[][] hole = getRing(polygon.getInteriorRingN(i), false);
+			if(hole != null)
+			{
+				this.addRing(hole, commands, cursor);
+			}
+		}
+	}
+
+	/**
+	 * @return the rounded coordinates of the ring, without the closing point and in the right
+	 * orientation, or null if the ring has no area after rounding
+	 */
+	private static int[][] getRing(LineString ring, boolean exterior)
+	{
+		List<int[]> points = new ArrayList<>();
+		Coordinate[] coordinates = ring.getCoordinates();
+		for(int i = 0; i < coordinates.length - 1; i++)
+		{
+			int[] point = {(int) Math.round(coordinates[i].x), (int) Math.round(coordinates[i].y)};
+			int[] previous = points.isEmpty() ? null : points.get(points.size() - 1);
+			if(previous == null || previous[0] != point[0] || previous[1] != point[1])
+			{
+				points.add(point);
+			}
+		}
+		while(points.size() > 1 && points.get(0)[0] == points.get(points.size() - 1)[0] && points.get(0)[1] == points.get(points.size() - 1)[1])
+		{
+			points.remove(points.size() - 1);
+		}
+		if(points.size() < 3)
+		{
+			return null;
+		}
+		long doubleArea = 0;
+		for(int i = 0; i < points.size(); i++)
+		{
+			int[] a = points.get(i);
+			int[] b = points.get((i + 1) % points.size());
+			doubleArea += (long) a[0] * b[1] - (long) b[0] * a[1];
+		}
+		if(doubleArea == 0)
+		{
+			return null;
+		}
+		int[][] retVal = points.toArray(new int[0][]);
+		if((doubleArea > 0) != exterior)
+		{
+			for(int i = 0, j = retVal.length - 1; i < j; i++, j--)
+			{
+				int[] swap = retVal[i];
+				retVal[i] = retVal[j];
+				retVal[j] = swap;
+			}
+		}
+		return retVal;
+	}
+
+	private void addRing(int[][] ring, List<Integer> commands, int[] cursor)
+	{
+		commands.add(getCommand(MOVE_TO, 1));
+		this.addPoint(ring[0], commands, cursor);
+		commands.add(getCommand(LINE_TO, ring.length - 1));
+		for(int i = 1; i < ring.length; i++)
+		{
+			this.addPoint(ring[i], commands, cursor);
+		}
+		commands.add(getCommand(CLOSE_PATH, 1));
+	}
+
+	private void addPoint(int[] point, List<Integer> commands, int[] cursor)
+	{
+		commands.add(zigZag(point[0] - cursor[0]));
+		commands.add(zigZag(point[1] - cursor[1]));
+		cursor[0] = point[0];
+		cursor[1] = point[1];
+	}
+
+	private static int getCommand(int id, int count)
+	{
+		return (id & 0x7) | (count << 3);
+	}
+
+	private static int zigZag(int value)
+	{
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/**
+	 * @return the number of features added
+	 */
+	public int getFeatureCount()
+	{
+		return this.featureCount;
+	}
+
+	/**
+	 * @return the encoded tile. Empty if no features were added
+	 */
+	public byte[] encode()
+	{
+		if(this.featureCount == 0)
+		{
+			return new byte[0];
+		}
+		ByteArrayOutputStream layer = new ByteArrayOutputStream();
+		writeTag(layer, 15, VARINT);
+		writeVarint(layer, 2);
+		writeBytes(layer, 1, this.layerName.getBytes(StandardCharsets.UTF_8));
+		layer.writeBytes(this.features.toByteArray());
+		for(String key:this.keys)
+		{
+			writeBytes(layer, 3, key.getBytes(StandardCharsets.UTF_8));
+		}
+		for(String value:this.values)
+		{
+			// A Value message with string_value
+			ByteArrayOutputStream encodedValue = new ByteArrayOutputStream();
+			writeBytes(encodedValue, 1, value.getBytes(StandardCharsets.UTF_8));
+			writeBytes(layer, 4, encodedValue.toByteArray());
+		}
+		writeTag(layer, 5, VARINT);
+		writeVarint(layer, this.extent);
+		ByteArrayOutputStream tile = new ByteArrayOutputStream();
+		writeBytes(tile, 3, layer.toByteArray());
+		return tile.toByteArray();
+	}
+
+	private static void writeTag(ByteArrayOutputStream out, int field, int wireType)
+	{
+		writeVarint(out, (field << 3) | wireType);
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, long value)
+	{
+		while((value & ~0x7fL) != 0)
+		{
+			out.write((int) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static void writeBytes(ByteArrayOutputStream out, int field, byte[] bytes)
+	{
+		writeTag(out, field, LENGTH_DELIMITED);
+		writeVarint(out, bytes.length);
+		out.writeBytes(bytes);
+	}
+
+	private static void writePacked(ByteArrayOutputStream out, int field, List<Integer> values)
+	{
+		ByteArrayOutputStream packed = new ByteArrayOutputStream();
+		for(int value:values)
+		{
+			// Unsigned, so that a negative int is not sign extended to 10 bytes
+			writeVarint(packed, value & 0xffffffffL);
+		}
+		writeBytes(out, field, packed.toByteArray());
+	}
+}
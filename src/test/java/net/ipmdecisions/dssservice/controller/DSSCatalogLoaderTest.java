@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package net.ipmdecisions.dssservice.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import net.ipmdecisions.dssservice.entity.DSS;
+
+/**
+ * Tests for reading the DSS files
+ */
+public class DSSCatalogLoaderTest {
+
+    /**
+     * A file that can't be read is reported, and does not stop the other DSSs from loading
+     */
+    @Test
+    public void testLoadErrors() throws IOException, URISyntaxException {
+        System.out.println("loadErrors");
+        Path DSSListFilesPath = this.createDSSListFilesPath("/dss_list_files/VIPS.yaml", "/dss_list_files_broken/broken.yaml");
+        File snapshotFile = new File(DSSListFilesPath.toFile(), "dss_catalog.smile");
+        System.setProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH", DSSListFilesPath.toString());
+        System.setProperty("net.ipmdecisions.dssservice.CATALOG_SNAPSHOT_FILE", snapshotFile.getPath());
+        try
+        {
+            DSSCatalog catalog = new DSSCatalogLoader().load();
+            assertEquals(1, catalog.getDSSList().size());
+            assertEquals("no.nibio.vips", catalog.getDSSByFileName().get("VIPS.yaml").getId());
+            assertEquals(1, catalog.getLoadErrors().size());
+            assertFalse(catalog.getLoadErrors().get("broken.yaml").isBlank());
+            // Or the error would not be reported next time
+            assertFalse(snapshotFile.exists());
+        }
+        finally
+        {
+            System.clearProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH");
+            System.clearProperty("net.ipmdecisions.dssservice.CATALOG_SNAPSHOT_FILE");
+            this.delete(DSSListFilesPath);
+        }
+    }
+
+    /**
+     * Only the changed files are read again. The DSSs from the other files are reused as they are
+     */
+    @Test
+    public void testUpdate() throws IOException, URISyntaxException {
+        System.out.println("update");
+        Path DSSListFilesPath = this.createDSSListFilesPath("/dss_list_files/VIPS.yaml");
+        Path copy = DSSListFilesPath.resolve("COPY.yaml");
+        String vips = Files.readString(DSSListFilesPath.resolve("VIPS.yaml"));
+        Files.writeString(copy, vips.replace("id: no.nibio.vips", "id: no.example.copy"));
+        System.setProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH", DSSListFilesPath.toString());
+        System.setProperty("net.ipmdecisions.dssservice.CATALOG_SNAPSHOT_FILE", "");
+        try
+        {
+            DSSCatalogLoader instance = new DSSCatalogLoader();
+            DSSCatalog previous = instance.load();
+            assertEquals(2, previous.getDSSList().size());
+
+            Files.writeString(copy, vips.replace("id: no.nibio.vips", "id: no.example.copy").replace("name: VIPS", "name: Changed"));
+            DSSCatalog catalog = instance.update(previous, Set.of("COPY.yaml"), false);
+            assertTrue(catalog.getGeneration() > previous.getGeneration());
+            assertSame(previous.getDSSByFileName().get("VIPS.yaml"), catalog.getDSSByFileName().get("VIPS.yaml"));
+            assertEquals("Changed", catalog.getDSSByFileName().get("COPY.yaml").getName());
+
+            // A file that can't be read keeps its previous version, and is reported
+            Files.writeString(copy, "name: \"Broken");
+            DSSCatalog broken = instance.update(catalog, Set.of("COPY.yaml"), false);
+            assertSame(catalog.getDSSByFileName().get("COPY.yaml"), broken.getDSSByFileName().get("COPY.yaml"));
+            assertTrue(broken.getLoadErrors().containsKey("COPY.yaml"));
+
+            // A deleted file is removed, and so is its error
+            Files.delete(copy);
+            DSSCatalog deleted = instance.update(broken, Set.of("COPY.yaml"), false);
+            assertEquals(Set.of("VIPS.yaml"), deleted.getDSSByFileName().keySet());
+            assertSame(previous.getDSSByFileName().get("VIPS.yaml"), deleted.getDSSByFileName().get("VIPS.yaml"));
+            assertTrue(deleted.getLoadErrors().isEmpty());
+        }
+        finally
+        {
+            System.clearProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH");
+            System.clearProperty("net.ipmdecisions.dssservice.CATALOG_SNAPSHOT_FILE");
+            this.delete(DSSListFilesPath);
+        }
+    }
+
+    /**
+     * The snapshot is used while the files are unchanged. When a file changes, the fingerprint no
+     * longer matches, and all the files are read again
+     */
+    @Test
+    public void testSnapshotFingerprint() throws IOException, URISyntaxException {
+        System.out.println("snapshotFingerprint");
+        Path DSSListFilesPath = this.createDSSListFilesPath("/dss_list_files/VIPS.yaml");
+        Path vipsFile = DSSListFilesPath.resolve("VIPS.yaml");
+        File snapshotFile = new File(DSSListFilesPath.toFile(), "dss_catalog.smile");
+        System.setProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH", DSSListFilesPath.toString());
+        System.setProperty("net.ipmdecisions.dssservice.CATALOG_SNAPSHOT_FILE", snapshotFile.getPath());
+        try
+        {
+            DSSCatalogLoader instance = new DSSCatalogLoader();
+            assertEquals("VIPS", instance.load().getDSSByFileName().get("VIPS.yaml").getName());
+            assertTrue(snapshotFile.isFile());
+
+            // Mark the snapshot, so that we can tell if it's used
+            DSSCatalogSnapshot snapshot = new DSSCatalogSnapshot(snapshotFile);
+            String fingerprint = this.getFingerprint(DSSListFilesPath);
+            DSS fromSnapshot = snapshot.read(fingerprint).getDSSByFileName().get("VIPS.yaml");
+            fromSnapshot.setName("From snapshot");
+            snapshot.write(fingerprint, Map.of("VIPS.yaml", fromSnapshot), null);
+            assertEquals("From snapshot", instance.load().getDSSByFileName().get("VIPS.yaml").getName());
+
+            Files.writeString(vipsFile, Files.readString(vipsFile).replace("name: VIPS", "name: Changed"));
+            assertEquals("Changed", instance.load().getDSSByFileName().get("VIPS.yaml").getName());
+            // The new snapshot is used from now on
+            assertNotNull(snapshot.read(this.getFingerprint(DSSListFilesPath)));
+        }
+        finally
+        {
+            System.clearProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH");
+            System.clearProperty("net.ipmdecisions.dssservice.CATALOG_SNAPSHOT_FILE");
+            this.delete(DSSListFilesPath);
+        }
+    }
+
+    /**
+     * @param resources the files to copy into the folder
+     * @return a new DSS_LIST_FILES_PATH folder
+     */
+    private Path createDSSListFilesPath(String... resources) throws IOException, URISyntaxException
+    {
+        Path DSSListFilesPath = Files.createTempDirectory("dss_list_files");
+        for(String resource:resources)
+        {
+            Path source = Paths.get(this.getClass().getResource(resource).toURI());
+            Files.copy(source, DSSListFilesPath.resolve(source.getFileName()));
+        }
+        return DSSListFilesPath;
+    }
+
+    /**
+     * @return the fingerprint of the DSS files and the risk maps file in the folder
+     */
+    private String getFingerprint(Path DSSListFilesPath)
+    {
+        return DSSCatalogSnapshot.getFingerprint(DSSListFilesPath.toFile().listFiles((dir, name) -> name.endsWith(DSSCatalogLoader.DSS_FILE_EXTENSION)),
+                new File(DSSListFilesPath.toFile(), DSSCatalogLoader.RISK_MAPS_FOLDER + "/" + DSSCatalogLoader.RISK_MAPS_FILE));
+    }
+
+    private void delete(Path path) throws IOException
+    {
+        try(Stream<Path> paths = Files.walk(path))
+        {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
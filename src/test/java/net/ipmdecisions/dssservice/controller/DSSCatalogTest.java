@@ -0,0 +1,517 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package net.ipmdecisions.dssservice.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ipmdecisions.dssservice.entity.DSS;
+import net.ipmdecisions.dssservice.entity.DSSModel;
+import net.ipmdecisions.dssservice.util.CountryBoundaryStore;
+import net.ipmdecisions.dssservice.util.MultiResolutionGeometry;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.wololo.geojson.Feature;
+import org.wololo.geojson.FeatureCollection;
+import org.wololo.geojson.GeoJSONFactory;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the in-memory DSS catalog, using the VIPS test file
+ */
+public class DSSCatalogTest {
+
+    private DSS readVIPS() throws IOException, URISyntaxException
+    {
+        File f = new File(this.getClass().getResource("/dss_list_files/VIPS.yaml").toURI());
+        return new DSSCatalogLoader().readDSSFile(f);
+    }
+
+    /**
+     * @return the boundaries of Norway and Sweden
+     */
+    private CountryBoundaryStore getCountryBoundaries() throws IOException
+    {
+        String countries = new String(this.getClass().getResourceAsStream("/geojson/countries_NOR_SWE.geojson").readAllBytes());
+        return new CountryBoundaryStore((FeatureCollection) GeoJSONFactory.create(countries));
+    }
+
+    /**
+     * Test of copyOf method, of class DSSCatalog.
+     */
+    @Test
+    public void testCopyOf() throws IOException, URISyntaxException {
+        System.out.println("copyOf");
+        DSS original = this.readVIPS();
+        DSS copy = DSSCatalog.copyOf(original);
+        assertNotSame(original, copy);
+        assertEquals(original.getId(), copy.getId());
+        assertEquals(original.getModels().size(), copy.getModels().size());
+        // Changing the copy must not affect the original
+        copy.getModels().get(0).setName("Changed");
+        assertNotEquals("Changed", original.getModels().get(0).getName());
+    }
+
+    /**
+     * Test of withModels method, of class DSS.
+     */
+    @Test
+    public void testWithModels() throws IOException, URISyntaxException {
+        System.out.println("withModels");
+        DSS original = this.readVIPS();
+        int numberOfModels = original.getModels().size();
+        DSS view = original.withModels(List.of(original.getModels().get(1)));
+        assertEquals(original.getId(), view.getId());
+        assertEquals(1, view.getModels().size());
+        // The models are shared, but the original keeps all of them
+        assertSame(original.getModels().get(1), view.getModels().get(0));
+        assertEquals(numberOfModels, original.getModels().size());
+    }
+
+    /**
+     * Test of getFileName method, of class DSSCatalog.
+     */
+    @Test
+    public void testGetFileName() throws IOException, URISyntaxException {
+        System.out.println("getFileName");
+        DSS vips = this.readVIPS();
+        DSSCatalog instance = new DSSCatalog(Map.of("VIPS.yaml", vips), null);
+        assertEquals("VIPS.yaml", instance.getFileName(DSSCatalog.copyOf(vips)));
+        assertEquals(1, instance.getDSSList().size());
+    }
+
+    /**
+     * Test of the model index of class DSSCatalog.
+     */
+    @Test
+    public void testModelIndex() throws IOException, URISyntaxException {
+        System.out.println("modelIndex");
+        DSS vips = this.readVIPS();
+        DSSModelIndex index = new DSSCatalog(Map.of("VIPS.yaml", vips), null).getModelIndex();
+        assertEquals(vips.getModels().size(), index.size());
+        BitSet carrotModels = index.getModelsForCrop("DAUCS");
+        assertTrue(carrotModels.get(0));
+        assertEquals("PSILARTEMP", index.getModel(carrotModels.nextSetBit(0)).getId());
+        assertTrue(index.getModelsForCrop("NOTACROP").isEmpty());
+        // Returned sets are copies
+        carrotModels.clear();
+        assertFalse(index.getModelsForCrop("DAUCS").isEmpty());
+        BitSet models = index.getModels(true, null);
+        models.and(index.getModelsForPest("PSILRO"));
+        assertTrue(index.getCrops(models).contains("DAUCS"));
+        assertEquals(index.getAllModels(), index.getModelsForDSS(0));
+        // Lookup by id
+        assertEquals(Integer.valueOf(0), index.getDSSOrdinal("no.nibio.vips"));
+        assertNull(index.getDSSOrdinal("no.such.dss"));
+        assertEquals("PSILARTEMP", index.getModel(index.getModelOrdinal("no.nibio.vips", "PSILARTEMP")).getId());
+        assertNull(index.getModelOrdinal("no.nibio.vips", "NOSUCHMODEL"));
+    }
+
+    /**
+     * Test of write and read methods, of class DSSCatalogSnapshot.
+     */
+    @Test
+    public void testSnapshot() throws IOException, URISyntaxException {
+        System.out.println("snapshot");
+        DSS vips = this.readVIPS();
+        File snapshotFile = File.createTempFile("dss_catalog", ".smile");
+        snapshotFile.deleteOnExit();
+        DSSCatalogSnapshot instance = new DSSCatalogSnapshot(snapshotFile);
+        instance.write("abc", Map.of("VIPS.yaml", vips), null);
+        assertNull(instance.read("def"));
+        DSSCatalogSnapshot.Content content = instance.read("abc");
+        assertNotNull(content);
+        DSS fromSnapshot = content.getDSSByFileName().get("VIPS.yaml");
+        assertEquals(vips.getId(), fromSnapshot.getId());
+        assertEquals(vips.getModels().size(), fromSnapshot.getModels().size());
+        assertEquals(vips.getModels().get(0).getExecution().getInput_schema(), fromSnapshot.getModels().get(0).getExecution().getInput_schema());
+    }
+
+    /**
+     * Test of getModels method, of class DSSModelSpatialIndex.
+     */
+    @Test
+    public void testSpatialIndex() throws IOException, URISyntaxException {
+        System.out.println("spatialIndex");
+        CountryBoundaryStore countryBoundaries = this.getCountryBoundaries();
+        DSS vips = this.readVIPS();
+        // The first model is valid in Norway. Make the second one valid everywhere
+        vips.getModels().get(1).getValid_spatial().setGeoJSON("{\"type\":\"Sphere\"}");
+        DSSCatalog catalog = new DSSCatalog(Map.of("VIPS.yaml", vips), null);
+        DSSModelSpatialIndex instance = new DSSModelSpatialIndex(catalog.getModelIndex(), countryBoundaries);
+        GeometryFactory geometryFactory = new GeometryFactory();
+        BitSet inNorway = instance.getModels(List.of(geometryFactory.createPoint(new Coordinate(10.78, 59.66))));
+        assertTrue(inNorway.get(0));
+        assertTrue(inNorway.get(1));
+        BitSet inTheAtlantic = instance.getModels(List.of(geometryFactory.createPoint(new Coordinate(-40.0, 0.0))));
+        assertFalse(inTheAtlantic.get(0));
+        assertTrue(inTheAtlantic.get(1));
+        // The point lookup must give the same result
+        assertEquals(inNorway, instance.getModels(10.78, 59.66));
+        assertEquals(inTheAtlantic, instance.getModels(-40.0, 0.0));
+        // Also for points that are answered from the point cache, including cells on the border
+        for(double longitude = 11.0; longitude < 13.0; longitude += 0.011)
+        {
+            for(double latitude = 58.9; latitude < 59.3; latitude += 0.009)
+            {
+                assertEquals(instance.getModels(List.of(geometryFactory.createPoint(new Coordinate(longitude, latitude)))),
+                        instance.getModels(longitude, latitude));
+            }
+        }
+        assertTrue((Long) instance.getPointCache().getStatistics().get("hits") > 0);
+    }
+
+    /**
+     * Test of parse method, of class DSSModelValidity.
+     */
+    @Test
+    public void testParseValidity() {
+        System.out.println("parseValidity");
+        DSSModel.Valid_Spatial validSpatial = new DSSModel.Valid_Spatial();
+        validSpatial.setCountries(new String[]{"NOR", "SWE"});
+        validSpatial.setGeoJSON("{}");
+        DSSModelValidity result = DSSModelValidity.parse(validSpatial);
+        assertFalse(result.isGlobal());
+        assertEquals(Set.of("NOR", "SWE"), result.getCountries());
+        assertNull(result.getCustomArea());
+
+        validSpatial.setGeoJSON("{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\",\"geometry\":{\"type\":\"Sphere\"}}]}");
+        assertTrue(DSSModelValidity.parse(validSpatial).isGlobal());
+
+        validSpatial.setGeoJSON("{\"type\":\"Polygon\",\"coordinates\":[[[10,55],[12,55],[12,56],[10,55]]]}");
+        result = DSSModelValidity.parse(validSpatial);
+        assertFalse(result.isGlobal());
+        assertNotNull(result.getCustomArea());
+    }
+
+    /**
+     * Test of the point lookup in DSSCoverageRaster
+     */
+    @Test
+    public void testCoverageRaster() throws IOException, URISyntaxException {
+        System.out.println("coverageRaster");
+        CountryBoundaryStore countryBoundaries = this.getCountryBoundaries();
+        DSSCatalog catalog = new DSSCatalog(Map.of("VIPS.yaml", this.readVIPS()), null);
+        DSSModelSpatialIndex instance;
+        System.setProperty("net.ipmdecisions.dssservice.COVERAGE_RASTER_RESOLUTION", "0.05");
+        try
+        {
+            instance = new DSSModelSpatialIndex(catalog.getModelIndex(), countryBoundaries);
+        }
+        finally
+        {
+            System.clearProperty("net.ipmdecisions.dssservice.COVERAGE_RASTER_RESOLUTION");
+        }
+        GeometryFactory geometryFactory = new GeometryFactory();
+        for(double longitude = 4.0; longitude < 25.0; longitude += 0.173)
+        {
+            for(double latitude = 54.0; latitude < 72.0; latitude += 0.151)
+            {
+                assertEquals(instance.getModels(List.of(geometryFactory.createPoint(new Coordinate(longitude, latitude)))),
+                        instance.getModels(longitude, latitude));
+            }
+        }
+    }
+
+    /**
+     * The cell index must give the same results as the exact tests
+     */
+    @Test
+    public void testCellIndex() throws IOException, URISyntaxException {
+        System.out.println("cellIndex");
+        CountryBoundaryStore countryBoundaries = this.getCountryBoundaries();
+        DSSCatalog catalog = new DSSCatalog(Map.of("VIPS.yaml", this.readVIPS()), null);
+        DSSModelSpatialIndex expected = new DSSModelSpatialIndex(catalog.getModelIndex(), countryBoundaries);
+        DSSModelSpatialIndex instance;
+        System.setProperty("net.ipmdecisions.dssservice.COVERAGE_CELL_INDEX_LEVEL", "10");
+        try
+        {
+            instance = new DSSModelSpatialIndex(catalog.getModelIndex(), countryBoundaries);
+        }
+        finally
+        {
+            System.clearProperty("net.ipmdecisions.dssservice.COVERAGE_CELL_INDEX_LEVEL");
+        }
+        GeometryFactory geometryFactory = new GeometryFactory();
+        for(double longitude = 4.0; longitude < 25.0; longitude += 0.173)
+        {
+            for(double latitude = 54.0; latitude < 72.0; latitude += 0.151)
+            {
+                List<Geometry> point = List.of(geometryFactory.createPoint(new Coordinate(longitude, latitude)));
+                assertEquals(expected.getModels(point), instance.getModels(longitude, latitude));
+                List<Geometry> square = List.of(geometryFactory.toGeometry(new Envelope(longitude, longitude + 0.05, latitude, latitude + 0.05)));
+                assertEquals(expected.getModels(square), instance.getModels(square));
+            }
+        }
+    }
+
+    /**
+     * An empty geometry has a null envelope, which is in no cell
+     */
+    @Test
+    public void testCellIndexNullEnvelope() throws IOException, URISyntaxException {
+        System.out.println("cellIndexNullEnvelope");
+        DSSCatalog catalog = new DSSCatalog(Map.of("VIPS.yaml", this.readVIPS()), null);
+        MultiResolutionGeometry[] validityAreas = new MultiResolutionGeometry[catalog.getModelIndex().size()];
+        // Covers all of the world, so the model is in the top level cell
+        validityAreas[0] = new MultiResolutionGeometry(new GeometryFactory().toGeometry(new Envelope(-181, 181, -91, 91)));
+        DSSModelCellIndex instance = new DSSModelCellIndex(catalog.getModelIndex(), validityAreas,
+                new CountryBoundaryStore(new FeatureCollection(new Feature[0])), 4, null);
+        assertTrue(instance.getInteriorModels(new Envelope(-170.0, 170.0, -80.0, 80.0)).get(0));
+        assertTrue(instance.getInteriorModels(new Envelope()).isEmpty());
+    }
+
+    /**
+     * The cell covers are saved, and read again instead of being computed
+     */
+    @Test
+    public void testCellIndexFile() throws IOException, URISyntaxException {
+        System.out.println("cellIndexFile");
+        // Read from a file, so that the store has a source
+        CountryBoundaryStore countryBoundaries = CountryBoundaryStore.readGeoJSON(
+                new File(this.getClass().getResource("/geojson/countries_NOR_SWE.geojson").toURI()));
+        assertNotNull(countryBoundaries.getSource());
+        DSSCatalog catalog = new DSSCatalog(Map.of("VIPS.yaml", this.readVIPS()), null);
+        DSSModelSpatialIndex spatialIndex = new DSSModelSpatialIndex(catalog.getModelIndex(), countryBoundaries);
+        MultiResolutionGeometry[] validityAreas = new MultiResolutionGeometry[catalog.getModelIndex().size()];
+        for(int ordinal = 0; ordinal < validityAreas.length; ordinal++)
+        {
+            Geometry area = spatialIndex.getValidityArea(ordinal);
+            validityAreas[ordinal] = area != null ? new MultiResolutionGeometry(area) : null;
+        }
+        File file = File.createTempFile("catalog", ".cells");
+        file.delete();
+        try
+        {
+            DSSModelCellIndex expected = new DSSModelCellIndex(catalog.getModelIndex(), validityAreas, countryBoundaries, 8, file);
+            assertTrue(file.isFile());
+            // Another level replaces the covers that are kept in memory
+            new DSSModelCellIndex(catalog.getModelIndex(), validityAreas, countryBoundaries, 9, null);
+            // Nothing is computed, so the file is not written again
+            assertTrue(file.setLastModified(0));
+            DSSModelCellIndex instance = new DSSModelCellIndex(catalog.getModelIndex(), validityAreas, countryBoundaries, 8, file);
+            assertEquals(0, file.lastModified());
+            for(double longitude = 4.0; longitude < 25.0; longitude += 0.173)
+            {
+                for(double latitude = 54.0; latitude < 72.0; latitude += 0.151)
+                {
+                    DSSModelPointCache.Cell expectedCell = expected.getCell(longitude, latitude);
+                    DSSModelPointCache.Cell cell = instance.getCell(longitude, latitude);
+                    assertEquals(expectedCell.insideModels, cell.insideModels);
+                    assertArrayEquals(expectedCell.boundaryModels, cell.boundaryModels);
+                }
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    /**
+     * Simplified areas are smaller, and kept for the next request
+     */
+    @Test
+    public void testSimplifiedValidityArea() throws IOException, URISyntaxException {
+        System.out.println("simplifiedValidityArea");
+        CountryBoundaryStore countryBoundaries = this.getCountryBoundaries();
+        DSSCatalog catalog = new DSSCatalog(Map.of("VIPS.yaml", this.readVIPS()), null);
+        DSSModelSpatialIndex instance = new DSSModelSpatialIndex(catalog.getModelIndex(), countryBoundaries);
+        int ordinal = catalog.getModelIndex().getModelOrdinal("no.nibio.vips", "PSILARTEMP");
+        Geometry area = instance.getValidityArea(ordinal);
+        assertNotNull(area);
+        assertSame(area, instance.getValidityArea(ordinal, 0));
+        Geometry simplifiedArea = instance.getValidityArea(ordinal, 0.1);
+        assertTrue(simplifiedArea.getNumPoints() < area.getNumPoints());
+        assertSame(simplifiedArea, instance.getValidityArea(ordinal, 0.1));
+        // Both are rounded down to 2^-4, so they share the simplified area
+        assertSame(simplifiedArea, instance.getValidityArea(ordinal, 0.07));
+        assertEquals(0.0625, DSSModelSpatialIndex.getDetailLevelTolerance(0.1));
+        assertEquals(0.0, DSSModelSpatialIndex.getDetailLevelTolerance(0));
+        assertEquals(4.0, DSSModelSpatialIndex.getDetailLevelTolerance(1000));
+        assertEquals(Math.scalb(1.0, -24), DSSModelSpatialIndex.getDetailLevelTolerance(Double.MIN_VALUE));
+    }
+
+    /**
+     * The parallel query of the unioned geometries must give the same results as the geometries one by one
+     */
+    @Test
+    public void testGetModelsInParallel() throws IOException, URISyntaxException {
+        System.out.println("getModelsInParallel");
+        CountryBoundaryStore countryBoundaries = this.getCountryBoundaries();
+        DSSCatalog catalog = new DSSCatalog(Map.of("VIPS.yaml", this.readVIPS()), null);
+        DSSModelSpatialIndex instance = new DSSModelSpatialIndex(catalog.getModelIndex(), countryBoundaries);
+        GeometryFactory geometryFactory = new GeometryFactory();
+        assertEquals(instance.getModels(List.of()), instance.getModelsInParallel(List.of()));
+        for(double longitude = 4.0; longitude < 25.0; longitude += 1.73)
+        {
+            for(double latitude = 54.0; latitude < 72.0; latitude += 1.51)
+            {
+                // Overlapping fields, and a point further away
+                List<Geometry> geometries = List.of(
+                        geometryFactory.toGeometry(new Envelope(longitude, longitude + 0.5, latitude, latitude + 0.5)),
+                        geometryFactory.toGeometry(new Envelope(longitude + 0.25, longitude + 0.75, latitude, latitude + 0.5)),
+                        geometryFactory.createPoint(new Coordinate(longitude + 1.0, latitude + 1.0))
+                );
+                assertEquals(instance.getModels(geometries), instance.getModelsInParallel(geometries));
+            }
+        }
+    }
+
+    /**
+     * Each location in a batch must get the same models as when it's queried alone
+     */
+    @Test
+    public void testGetModelsForEach() throws IOException, URISyntaxException {
+        System.out.println("getModelsForEach");
+        CountryBoundaryStore countryBoundaries = this.getCountryBoundaries();
+        DSSCatalog catalog = new DSSCatalog(Map.of("VIPS.yaml", this.readVIPS()), null);
+        DSSModelSpatialIndex instance = new DSSModelSpatialIndex(catalog.getModelIndex(), countryBoundaries);
+        GeometryFactory geometryFactory = new GeometryFactory();
+        List<Geometry> geometries = new ArrayList<>();
+        for(double longitude = 4.0; longitude < 25.0; longitude += 1.73)
+        {
+            for(double latitude = 54.0; latitude < 72.0; latitude += 1.51)
+            {
+                geometries.add(geometryFactory.toGeometry(new Envelope(longitude, longitude + 0.5, latitude, latitude + 0.5)));
+                geometries.add(geometryFactory.createPoint(new Coordinate(longitude + 1.0, latitude + 1.0)));
+            }
+        }
+        List<BitSet> result = instance.getModelsForEach(geometries);
+        assertEquals(geometries.size(), result.size());
+        for(int i = 0; i < geometries.size(); i++)
+        {
+            assertEquals(instance.getModelsInParallel(List.of(geometries.get(i))), result.get(i));
+        }
+        assertTrue(instance.getModelsForEach(List.of()).isEmpty());
+    }
+
+    /**
+     * Languages without translations share the default translation
+     */
+    @Test
+    public void testGetAvailableLanguage() throws IOException, URISyntaxException {
+        System.out.println("getAvailableLanguage");
+        File DSSListFilesPath = Files.createTempDirectory("dss_list_files").toFile();
+        File i18nFolder = new File(DSSListFilesPath, DSSCatalogLoader.I18N_FOLDER);
+        File bundleFolder = new File(i18nFolder, "no/nibio");
+        File bundleFile = new File(bundleFolder, "vips_nb.properties");
+        bundleFolder.mkdirs();
+        Files.writeString(bundleFile.toPath(), "");
+        System.setProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH", DSSListFilesPath.getPath());
+        try
+        {
+            DSSCatalog catalog = new DSSCatalog(Map.of("VIPS.yaml", this.readVIPS()), null);
+            assertEquals("nb", catalog.getAvailableLanguage("nb"));
+            assertEquals("nb", catalog.getAvailableLanguage("NB"));
+            assertEquals("default", catalog.getAvailableLanguage("xx"));
+            assertEquals("default", catalog.getAvailableLanguage(null));
+            assertSame(catalog.getDSSList(null), catalog.getDSSList("xx"));
+            assertSame(catalog.getDSSList("nb"), catalog.getDSSList("NB"));
+        }
+        finally
+        {
+            System.clearProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH");
+            bundleFile.delete();
+            bundleFolder.delete();
+            bundleFolder.getParentFile().delete();
+            i18nFolder.delete();
+            DSSListFilesPath.delete();
+        }
+    }
+
+    /**
+     * A raster resolution that can't be used turns the raster off, instead of failing the index
+     */
+    @Test
+    public void testConfiguredRasterResolution() {
+        System.out.println("configuredRasterResolution");
+        try
+        {
+            System.setProperty("net.ipmdecisions.dssservice.COVERAGE_RASTER_RESOLUTION", "0.05");
+            assertEquals(0.05, DSSCoverageRaster.getConfiguredResolution());
+            for(String resolution:List.of("", "0", "-1", "NaN", "Infinity", "fine"))
+            {
+                System.setProperty("net.ipmdecisions.dssservice.COVERAGE_RASTER_RESOLUTION", resolution);
+                assertEquals(0.0, DSSCoverageRaster.getConfiguredResolution());
+            }
+        }
+        finally
+        {
+            System.clearProperty("net.ipmdecisions.dssservice.COVERAGE_RASTER_RESOLUTION");
+        }
+    }
+
+    /**
+     * Cell sizes that would make the cell keys collide are not used
+     */
+    @Test
+    public void testPointCacheCellSize() {
+        System.out.println("pointCacheCellSize");
+        try
+        {
+            System.setProperty("net.ipmdecisions.dssservice.POINT_CACHE_CELL_SIZE", "0.05");
+            assertEquals(0.05, DSSModelPointCache.getConfiguredCellSize());
+            for(String cellSize:List.of("1e-9", "0", "-1", "NaN", "Infinity", "fine"))
+            {
+                System.setProperty("net.ipmdecisions.dssservice.POINT_CACHE_CELL_SIZE", cellSize);
+                assertEquals(0.01, DSSModelPointCache.getConfiguredCellSize());
+            }
+        }
+        finally
+        {
+            System.clearProperty("net.ipmdecisions.dssservice.POINT_CACHE_CELL_SIZE");
+        }
+    }
+
+    /**
+     * A number of languages that can't be used falls back to the default
+     */
+    @Test
+    public void testTranslationCacheLanguages() {
+        System.out.println("translationCacheLanguages");
+        try
+        {
+            for(String languages:List.of("0", "3"))
+            {
+                System.setProperty("net.ipmdecisions.dssservice.TRANSLATION_CACHE_LANGUAGES", languages);
+                assertEquals(Integer.parseInt(languages), DSSCatalog.getConfiguredTranslationCacheLanguages());
+            }
+            for(String languages:List.of("", "-1", "2.5", "all"))
+            {
+                System.setProperty("net.ipmdecisions.dssservice.TRANSLATION_CACHE_LANGUAGES", languages);
+                assertEquals(10, DSSCatalog.getConfiguredTranslationCacheLanguages());
+            }
+        }
+        finally
+        {
+            System.clearProperty("net.ipmdecisions.dssservice.TRANSLATION_CACHE_LANGUAGES");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package net.ipmdecisions.dssservice.controller;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the catalog watcher
+ */
+public class DSSCatalogWatcherTest {
+
+    /**
+     * Translation bundles are in sub folders of i18n. Changes there must give a new catalog generation
+     */
+    @Test
+    public void testNestedTranslationChange() throws IOException, URISyntaxException, InterruptedException {
+        System.out.println("nestedTranslationChange");
+        Path DSSListFilesPath = Files.createTempDirectory("dss_list_files");
+        Path bundleFolder = DSSListFilesPath.resolve(DSSCatalogLoader.I18N_FOLDER).resolve("no/nibio");
+        Files.createDirectories(bundleFolder);
+        Files.copy(Paths.get(this.getClass().getResource("/dss_list_files/VIPS.yaml").toURI()), DSSListFilesPath.resolve("VIPS.yaml"));
+        System.setProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH", DSSListFilesPath.toString());
+        System.setProperty("net.ipmdecisions.dssservice.CATALOG_RELOAD_DEBOUNCE_MS", "200");
+        DSSCatalogWatcher watcher = new DSSCatalogWatcher(DSSListFilesPath.toString());
+        try
+        {
+            DSSCatalog catalog = DSSCatalog.reload();
+            assertEquals("default", catalog.getAvailableLanguage("nb"));
+            watcher.start();
+
+            // A new bundle in a folder that existed when the watcher started
+            Files.writeString(bundleFolder.resolve("vips_nb.properties"), "");
+            catalog = this.waitForNewGeneration(catalog);
+            assertEquals("nb", catalog.getAvailableLanguage("nb"));
+
+            // A changed bundle in a folder that was created after the watcher started
+            Path newFolder = Files.createDirectories(DSSListFilesPath.resolve(DSSCatalogLoader.I18N_FOLDER).resolve("se"));
+            catalog = this.waitForNewGeneration(catalog);
+            Files.writeString(newFolder.resolve("example_sv.properties"), "");
+            catalog = this.waitForNewGeneration(catalog);
+            Files.writeString(newFolder.resolve("example_sv.properties"), "a=b");
+            this.waitForNewGeneration(catalog);
+        }
+        finally
+        {
+            watcher.stop();
+            System.clearProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH");
+            System.clearProperty("net.ipmdecisions.dssservice.CATALOG_RELOAD_DEBOUNCE_MS");
+            try(Stream<Path> paths = Files.walk(DSSListFilesPath))
+            {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * @return the new catalog. Fails if there is none within 10 seconds
+     */
+    private DSSCatalog waitForNewGeneration(DSSCatalog catalog) throws IOException, InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+        while(System.currentTimeMillis() < deadline)
+        {
+            DSSCatalog current = DSSCatalog.getCurrent();
+            if(current.getGeneration() > catalog.getGeneration())
+            {
+                return current;
+            }
+            Thread.sleep(50);
+        }
+        fail("No new catalog generation");
+        return null;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package net.ipmdecisions.dssservice.controller;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the input schema translation helpers
+ */
+public class DSSTranslatorTest {
+
+    /**
+     * Test of toJsonPointer method, of class DSSTranslator.
+     */
+    @Test
+    public void testToJsonPointer() {
+        System.out.println("toJsonPointer");
+        assertEquals("/properties/fieldObservation/title", DSSTranslator.toJsonPointer("properties.fieldObservation.title").toString());
+        assertEquals("/required/0", DSSTranslator.toJsonPointer("required[0]").toString());
+        assertEquals("/properties/a.b/title", DSSTranslator.toJsonPointer("properties[\"a.b\"].title").toString());
+        assertEquals("/properties/a~1b/items/2/title", DSSTranslator.toJsonPointer("properties.a/b.items[2].title").toString());
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package net.ipmdecisions.dssservice.services;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.specimpl.RequestImpl;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import net.ipmdecisions.dssservice.controller.DSSCatalog;
+
+/**
+ * Tests for the cache of serialized catalog responses
+ */
+public class CatalogResponseCacheTest {
+
+    /**
+     * A limit that can't be used falls back to the default. Zero turns the cache off
+     */
+    @Test
+    public void testConfiguredLimit() {
+        System.out.println("configuredLimit");
+        try
+        {
+            for(String limit:List.of("0", "200"))
+            {
+                System.setProperty("net.ipmdecisions.dssservice.TEST_CACHE_SIZE", limit);
+                assertEquals(Long.parseLong(limit), CatalogResponseCache.getConfiguredLimit("TEST_CACHE_SIZE", 500));
+            }
+            for(String limit:List.of("", "-1", "1.5", "100 MB"))
+            {
+                System.setProperty("net.ipmdecisions.dssservice.TEST_CACHE_SIZE", limit);
+                assertEquals(500, CatalogResponseCache.getConfiguredLimit("TEST_CACHE_SIZE", 500));
+            }
+        }
+        finally
+        {
+            System.clearProperty("net.ipmdecisions.dssservice.TEST_CACHE_SIZE");
+        }
+    }
+
+    /**
+     * Requests that differ in any of the parameters must not share a body, even if
+     * the parameters look the same when glued together
+     */
+    @Test
+    public void testKeys() throws IOException, URISyntaxException {
+        System.out.println("keys");
+        DSSCatalog catalog = this.getCatalog();
+        AtomicInteger created = new AtomicInteger();
+        List<List<?>> keys = List.of(
+                Arrays.asList("dss", "nb", null),
+                Arrays.asList("dss", "nb", "ONTHEFLY"),
+                Arrays.asList("dss", "en", "ONTHEFLY"),
+                Arrays.asList("dss", null, "nb"),
+                Arrays.asList("dss/platform_validated", true, "nb", null),
+                Arrays.asList("dss/platform_validated", false, "nb", null),
+                Arrays.asList("dss/platform_validated", "true", "nb", null),
+                Arrays.asList("crop/execution_type", "LINK"),
+                Arrays.asList("crop/execution_type|LINK")
+        );
+        for(List<?> key:keys)
+        {
+            Response response = CatalogResponseCache.getResponse(this.getRequest(null), catalog, key, () -> key.toString());
+            assertEquals("\"" + key + "\"", new String((byte[]) response.getEntity()));
+        }
+        // Equal keys share the body
+        for(List<?> key:keys)
+        {
+            Response response = CatalogResponseCache.getResponse(this.getRequest(null), catalog, new ArrayList<>(key), () -> {
+                created.incrementAndGet();
+                return "new";
+            });
+            assertEquals("\"" + key + "\"", new String((byte[]) response.getEntity()));
+        }
+        assertEquals(0, created.get());
+    }
+
+    /**
+     * Clients that send the ETag of the current body in If-None-Match get 304 Not Modified without a body
+     */
+    @Test
+    public void testNotModified() throws IOException, URISyntaxException {
+        System.out.println("notModified");
+        DSSCatalog catalog = this.getCatalog();
+        List<?> key = List.of("pest");
+        Response response = CatalogResponseCache.getResponse(this.getRequest(null), catalog, key, () -> List.of("PSILRO"));
+        assertEquals(200, response.getStatus());
+        EntityTag entityTag = (EntityTag) response.getMetadata().getFirst("ETag");
+        assertNotNull(entityTag);
+        assertFalse(entityTag.isWeak());
+
+        response = CatalogResponseCache.getResponse(this.getRequest(entityTag.toString()), catalog, key, () -> List.of("PSILRO"));
+        assertEquals(304, response.getStatus());
+        assertNull(response.getEntity());
+        assertEquals(entityTag, response.getMetadata().getFirst("ETag"));
+
+        response = CatalogResponseCache.getResponse(this.getRequest("\"outdated\""), catalog, key, () -> List.of("PSILRO"));
+        assertEquals(200, response.getStatus());
+        assertEquals("[\"PSILRO\"]", new String((byte[]) response.getEntity()));
+    }
+
+    /**
+     * @param ifNoneMatch the If-None-Match header. May be null
+     */
+    private Request getRequest(String ifNoneMatch) throws URISyntaxException
+    {
+        MockHttpRequest request = MockHttpRequest.get("/rest/dss");
+        if(ifNoneMatch != null)
+        {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return new RequestImpl(request, new MockHttpResponse());
+    }
+
+    /**
+     * @return a new catalog generation, so that the bodies of other tests are not used
+     */
+    private DSSCatalog getCatalog() throws IOException, URISyntaxException
+    {
+        System.setProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH",
+                Paths.get(this.getClass().getResource("/dss_list_files").toURI()).toString());
+        try
+        {
+            return DSSCatalog.reload();
+        }
+        finally
+        {
+            System.clearProperty("net.ipmdecisions.dssservice.DSS_LIST_FILES_PATH");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package net.ipmdecisions.dssservice.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the disk part of the tile cache
+ */
+public class CoverageTileCacheTest {
+
+    /**
+     * Only our own outdated tile directories, and abandoned ones, may be deleted
+     */
+    @Test
+    public void testDeleteOutdatedDirectories() throws IOException, InterruptedException {
+        System.out.println("deleteOutdatedDirectories");
+        File directory = Files.createTempDirectory("coverage_tiles").toFile();
+        File current = this.createTileDirectory(directory, CoverageTileCache.INSTANCE_ID + "-2");
+        File ownOutdated = this.createTileDirectory(directory, CoverageTileCache.INSTANCE_ID + "-1");
+        File otherInstance = this.createTileDirectory(directory, UUID.randomUUID() + "-1");
+        File abandoned = this.createTileDirectory(directory, UUID.randomUUID() + "-1");
+        abandoned.setLastModified(System.currentTimeMillis() - 2 * 24 * 60 * 60 * 1000L);
+        File unrelated = this.createTileDirectory(directory, "maps");
+        File unrelatedOld = this.createTileDirectory(directory, "old_maps");
+        unrelatedOld.setLastModified(0);
+
+        Thread deleter = CoverageTileCache.deleteOutdatedDirectories(directory, current);
+        assertNotNull(deleter);
+        deleter.join();
+
+        assertTrue(current.isDirectory());
+        assertFalse(ownOutdated.exists());
+        assertTrue(otherInstance.isDirectory());
+        assertFalse(abandoned.exists());
+        assertEquals(1, unrelated.listFiles().length);
+        assertEquals(1, unrelatedOld.listFiles().length);
+        // Nothing more to delete
+        assertNull(CoverageTileCache.deleteOutdatedDirectories(directory, current));
+
+        for(File subdirectory:directory.listFiles())
+        {
+            for(File file:subdirectory.listFiles())
+            {
+                file.delete();
+            }
+            subdirectory.delete();
+        }
+        directory.delete();
+    }
+
+    private File createTileDirectory(File directory, String name) throws IOException
+    {
+        File subdirectory = new File(directory, name);
+        subdirectory.mkdir();
+        Files.write(new File(subdirectory, "tile.mvt").toPath(), new byte[] {1, 2, 3});
+        return subdirectory;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package net.ipmdecisions.dssservice.services;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the location batch pool owned by the listener
+ */
+public class DSSCatalogListenerTest {
+
+    /**
+     * A parallelism that can't be used falls back to the number of processors
+     */
+    @Test
+    public void testConfiguredLocationBatchParallelism() {
+        System.out.println("configuredLocationBatchParallelism");
+        try
+        {
+            System.setProperty("net.ipmdecisions.dssservice.LOCATION_BATCH_PARALLELISM", "3");
+            assertEquals(3, DSSCatalogListener.getConfiguredLocationBatchParallelism());
+            for(String parallelism:List.of("", "0", "-1", "1.5", "many"))
+            {
+                System.setProperty("net.ipmdecisions.dssservice.LOCATION_BATCH_PARALLELISM", parallelism);
+                assertEquals(Runtime.getRuntime().availableProcessors(), DSSCatalogListener.getConfiguredLocationBatchParallelism());
+            }
+        }
+        finally
+        {
+            System.clearProperty("net.ipmdecisions.dssservice.LOCATION_BATCH_PARALLELISM");
+        }
+    }
+
+    /**
+     * The pool is shut down with the application, and a new one is created if it's used again
+     */
+    @Test
+    public void testLocationBatchPoolShutdown() {
+        System.out.println("locationBatchPoolShutdown");
+        ForkJoinPool pool = DSSCatalogListener.getLocationBatchPool();
+        assertSame(pool, DSSCatalogListener.getLocationBatchPool());
+        new DSSCatalogListener().contextDestroyed(null);
+        assertTrue(pool.isShutdown());
+        ForkJoinPool newPool = DSSCatalogListener.getLocationBatchPool();
+        assertNotSame(pool, newPool);
+        assertFalse(newPool.isShutdown());
+    }
+}
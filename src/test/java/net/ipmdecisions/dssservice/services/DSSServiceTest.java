@@ -96,6 +96,48 @@ public class DSSServiceTest {
         
     }
 
-    
-    
+    /**
+     * Test of listModelsForPoint method, of class DSSService. Coordinates outside of
+     * the world are rejected before the catalog is used
+     */
+    @Test
+    public void testListModelsForPointCoordinates() {
+        System.out.println("listModelsForPointCoordinates");
+        DSSService instance = new DSSService();
+        assertEquals(400, instance.listModelsForPoint(null, 10.0, null, null, null).getStatus());
+        assertEquals(400, instance.listModelsForPoint(9999.0, 10.0, null, null, null).getStatus());
+        assertEquals(400, instance.listModelsForPoint(59.0, -180.5, null, null, null).getStatus());
+        assertEquals(400, instance.listModelsForPoint(Double.NaN, 10.0, null, null, null).getStatus());
+        assertEquals(400, instance.listModelsForPoint(59.0, Double.POSITIVE_INFINITY, null, null, null).getStatus());
+        assertNull(DSSService.getCoordinateError(90.0, -180.0));
+        assertNull(DSSService.getCoordinateError(-90.0, 180.0));
+        assertNull(DSSService.getCoordinateError(59.66, 10.78));
+    }
+
+    /**
+     * Test of getCountriesAt method, of class DSSService. Coordinates outside of
+     * the world are rejected before the country boundaries are used
+     */
+    @Test
+    public void testGetCountriesAtCoordinates() {
+        System.out.println("getCountriesAtCoordinates");
+        DSSService instance = new DSSService();
+        assertEquals(400, instance.getCountriesAt(59.0, null).getStatus());
+        assertEquals(400, instance.getCountriesAt(-91.0, 10.0).getStatus());
+        assertEquals(400, instance.getCountriesAt(59.0, 360.0).getStatus());
+        assertEquals(400, instance.getCountriesAt(Double.NaN, 10.0).getStatus());
+        assertEquals(400, instance.getCountriesAt(59.0, Double.NEGATIVE_INFINITY).getStatus());
+    }
+
+    /**
+     * Test of getCountriesAtLocations method, of class DSSService. Only input that
+     * can't be read as a FeatureCollection is a bad request
+     */
+    @Test
+    public void testGetCountriesAtLocationsBadRequest() {
+        System.out.println("getCountriesAtLocationsBadRequest");
+        DSSService instance = new DSSService();
+        assertEquals(400, instance.getCountriesAtLocations("not GeoJSON").getStatus());
+        assertEquals(400, instance.getCountriesAtLocations("{\"type\": \"Point\", \"coordinates\": [10.0, 59.0]}").getStatus());
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package net.ipmdecisions.dssservice.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+/**
+ * Tests for the binary country boundary format
+ */
+public class CountryBoundaryFileTest {
+
+    /**
+     * Test of the round trip GeoJSON -> binary file -> CountryBoundaryStore
+     */
+    @Test
+    public void testRead() throws IOException, URISyntaxException {
+        System.out.println("read");
+        File geoJSONFile = new File(this.getClass().getResource("/geojson/countries_NOR_SWE.geojson").toURI());
+        File binaryFile = File.createTempFile("country_boundaries", ".bin");
+        binaryFile.delete();
+        binaryFile.deleteOnExit();
+
+        // First time: Read from GeoJSON, and write the binary file
+        CountryBoundaryStore fromGeoJSON = CountryBoundaryStore.read(geoJSONFile, binaryFile);
+        assertTrue(binaryFile.isFile());
+        assertTrue(CountryBoundaryFile.isBinaryFile(binaryFile));
+        assertFalse(CountryBoundaryFile.isBinaryFile(geoJSONFile));
+
+        // Second time: Read from the binary file
+        CountryBoundaryStore fromBinary = CountryBoundaryStore.read(geoJSONFile, binaryFile);
+        assertEquals(fromGeoJSON.getCountryCodes(), fromBinary.getCountryCodes());
+        for(String countryCode:fromGeoJSON.getCountryCodes())
+        {
+            assertTrue(fromGeoJSON.getGeometry(countryCode).equalsExact(fromBinary.getGeometry(countryCode)));
+        }
+        assertNotNull(fromBinary.getFeature("NOR"));
+        // The features have all the properties from the GeoJSON file
+        assertEquals("Norway", fromGeoJSON.getFeature("NOR").getProperties().get("ADMIN"));
+        assertEquals(fromGeoJSON.getFeature("NOR").getProperties(), fromBinary.getFeature("NOR").getProperties());
+        assertEquals(fromGeoJSON.getProperties("SWE"), fromBinary.getProperties("SWE"));
+        assertNull(fromBinary.getProperties("XXX"));
+        assertNull(fromBinary.getGeometry("XXX"));
+        assertEquals(List.of("NOR"), fromBinary.getCountryCodes(new GeometryFactory().createPoint(new Coordinate(10.78, 59.66))));
+
+        CountryBoundaryFile boundaryFile = CountryBoundaryFile.open(binaryFile);
+        assertEquals(CountryBoundaryFile.getSource(geoJSONFile), boundaryFile.getSource());
+        assertEquals(fromGeoJSON.getGeometry("SWE").getEnvelopeInternal(), boundaryFile.getEnvelope("SWE"));
+    }
+}
@@ -19,11 +19,14 @@
 package net.ipmdecisions.dssservice.util;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.URISyntaxException;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.AfterAll;
@@ -31,7 +34,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.wololo.geojson.Feature;
 import org.wololo.geojson.FeatureCollection;
 import org.wololo.geojson.GeoJSONFactory;
@@ -139,6 +145,53 @@ public class GISUtilsTest {
         
     }
     
+    /**
+     * Test of getPreparedGeometry method, of class CountryBoundaryStore.
+     */
+    @Test
+    public void testGetPreparedGeometry() {
+        System.out.println("getPreparedGeometry");
+        CountryBoundaryStore instance = new CountryBoundaryStore(this.getCountryBoundaries());
+        Geometry pointInNorway = new GeometryFactory().createPoint(new Coordinate(10.780913829803467, 59.66215936204673));
+        assertTrue(instance.getPreparedGeometry("NOR").intersects(pointInNorway));
+        assertFalse(instance.getPreparedGeometry("SWE").intersects(pointInNorway));
+        assertNull(instance.getPreparedGeometry("XXX"));
+        assertNotNull(instance.getFeature("SWE"));
+    }
+
+    /**
+     * Test of readGeoJSON method, of class CountryBoundaryStore.
+     */
+    @Test
+    public void testReadGeoJSON() throws IOException, URISyntaxException {
+        System.out.println("readGeoJSON");
+        File file = new File(this.getClass().getResource("/geojson/countries_NOR_SWE.geojson").toURI());
+        CountryBoundaryStore expected = new CountryBoundaryStore(this.getCountryBoundaries());
+        CountryBoundaryStore result = CountryBoundaryStore.readGeoJSON(file);
+        assertEquals(expected.getCountryCodes(), result.getCountryCodes());
+        for(String countryCode:expected.getCountryCodes())
+        {
+            assertTrue(expected.getGeometry(countryCode).equalsExact(result.getGeometry(countryCode)));
+        }
+        assertEquals("NOR", result.getFeature("NOR").getProperties().get("ISO_A3"));
+    }
+    
+    /**
+     * Test of getCountryCodes method, of class CountryBoundaryStore.
+     */
+    @Test
+    public void testGetCountryCodes() {
+        System.out.println("getCountryCodes");
+        CountryBoundaryStore instance = new CountryBoundaryStore(this.getCountryBoundaries());
+        GeometryFactory geometryFactory = new GeometryFactory();
+        assertEquals(List.of("NOR"), instance.getCountryCodes(geometryFactory.createPoint(new Coordinate(10.780913829803467, 59.66215936204673))));
+        assertEquals(List.of("SWE"), instance.getCountryCodes(geometryFactory.createPoint(new Coordinate(18.07, 59.33))));
+        // The North Sea
+        assertEquals(List.of(), instance.getCountryCodes(geometryFactory.createPoint(new Coordinate(3.0, 57.0))));
+        // Across the border
+        assertEquals(List.of("NOR", "SWE"), instance.getCountryCodes(geometryFactory.toGeometry(new Envelope(11.0, 13.0, 59.0, 60.0))));
+    }
+
     private FeatureCollection countryBoundaries;
     
     /**
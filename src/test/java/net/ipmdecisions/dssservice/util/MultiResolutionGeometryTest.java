@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package net.ipmdecisions.dssservice.util;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.wololo.geojson.FeatureCollection;
+import org.wololo.geojson.GeoJSONFactory;
+
+/**
+ * The simplified tiers must never change the result of a test
+ */
+public class MultiResolutionGeometryTest {
+
+    @Test
+    public void testSameResultAsFullResolution() throws IOException {
+        System.out.println("sameResultAsFullResolution");
+        String countries = new String(this.getClass().getResourceAsStream("/geojson/countries_NOR_SWE.geojson").readAllBytes());
+        Geometry norway = new CountryBoundaryStore((FeatureCollection) GeoJSONFactory.create(countries)).getGeometry("NOR");
+        assertTrue(norway.getNumPoints() >= 1000, "The test geometry must be large enough to get the simplified tiers");
+        MultiResolutionGeometry instance = new MultiResolutionGeometry(norway);
+        PreparedGeometry expected = new PreparedGeometryFactory().create(norway);
+        GeometryFactory geometryFactory = new GeometryFactory();
+        // Along the coast and the border to Sweden
+        for(double longitude = 4.5; longitude < 13.0; longitude += 0.0731)
+        {
+            for(double latitude = 57.8; latitude < 64.0; latitude += 0.0617)
+            {
+                Geometry point = geometryFactory.createPoint(new Coordinate(longitude, latitude));
+                assertEquals(expected.intersects(point), instance.intersects(point));
+                Geometry square = geometryFactory.toGeometry(new Envelope(longitude, longitude + 0.05, latitude, latitude + 0.05));
+                assertEquals(expected.intersects(square), instance.intersects(square));
+                assertEquals(expected.covers(square), instance.covers(square));
+            }
+        }
+    }
+
+    /**
+     * A tolerance that can't be used falls back to the default. Zero turns the simplification off
+     */
+    @Test
+    public void testConfiguredTolerance() {
+        System.out.println("configuredTolerance");
+        try
+        {
+            for(String tolerance:List.of("0", "0.05"))
+            {
+                System.setProperty("net.ipmdecisions.dssservice.GEOMETRY_SIMPLIFY_TOLERANCE", tolerance);
+                assertEquals(Double.parseDouble(tolerance), MultiResolutionGeometry.getConfiguredTolerance());
+            }
+            for(String tolerance:List.of("", "-0.01", "NaN", "Infinity", "coarse"))
+            {
+                System.setProperty("net.ipmdecisions.dssservice.GEOMETRY_SIMPLIFY_TOLERANCE", tolerance);
+                assertEquals(0.01, MultiResolutionGeometry.getConfiguredTolerance());
+            }
+        }
+        finally
+        {
+            System.clearProperty("net.ipmdecisions.dssservice.GEOMETRY_SIMPLIFY_TOLERANCE");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2026 NIBIO <http://www.nibio.no/>.
+ *
+ * This file is part of IPMDecisionsDSSService.
+ * IPMDecisionsDSSService is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * IPMDecisionsDSSService is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with IPMDecisionsDSSService.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package net.ipmdecisions.dssservice.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * The encoding is checked against the examples in the vector tile specification
+ */
+public class VectorTileEncoderTest {
+
+    @Test
+    public void testPolygon() {
+        System.out.println("polygon");
+        GeometryFactory geometryFactory = new GeometryFactory();
+        // The polygon example in the specification (4.3.5.3)
+        Coordinate[] ring = {new Coordinate(3, 6), new Coordinate(8, 12), new Coordinate(20, 34), new Coordinate(3, 6)};
+        byte[] expectedGeometry = {9, 6, 12, 18, 10, 12, 24, 44, 15};
+
+        VectorTileEncoder instance = new VectorTileEncoder("coverage", VectorTileEncoder.DEFAULT_EXTENT);
+        instance.addFeature(geometryFactory.createPolygon(ring), Map.of("model_id", "PSILARTEMP"));
+        assertEquals(1, instance.getFeatureCount());
+        assertTrue(contains(instance.encode(), expectedGeometry));
+
+        // The exterior ring is turned the right way
+        Coordinate[] reversedRing = ring.clone();
+        Collections.reverse(Arrays.asList(reversedRing));
+        Polygon reversed = geometryFactory.createPolygon(reversedRing);
+        instance = new VectorTileEncoder("coverage", VectorTileEncoder.DEFAULT_EXTENT);
+        instance.addFeature(reversed, Map.of("model_id", "PSILARTEMP"));
+        byte[] tile = instance.encode();
+        // (8,12) (20,34) (3,6)
+        assertTrue(contains(tile, new byte[] {9, 16, 24, 18, 24, 44, 33, 55, 15}));
+        assertTrue(contains(tile, "coverage".getBytes()));
+        assertTrue(contains(tile, "PSILARTEMP".getBytes()));
+    }
+
+    @Test
+    public void testEmpty() {
+        System.out.println("empty");
+        GeometryFactory geometryFactory = new GeometryFactory();
+        VectorTileEncoder instance = new VectorTileEncoder("coverage", VectorTileEncoder.DEFAULT_EXTENT);
+        assertEquals(0, instance.encode().length);
+        // Less than one unit in size
+        Coordinate[] ring = {new Coordinate(3, 6), new Coordinate(3.2, 6), new Coordinate(3.2, 6.2), new Coordinate(3, 6)};
+        instance.addFeature(geometryFactory.createPolygon(ring), Map.of("model_id", "PSILARTEMP"));
+        assertEquals(0, instance.getFeatureCount());
+        assertEquals(0, instance.encode().length);
+    }
+
+    private static boolean contains(byte[] bytes, byte[] part)
+    {
+        for(int i = 0; i + part.length <= bytes.length; i++)
+        {
+            if(Arrays.equals(bytes, i, i + part.length, part, 0, part.length))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}